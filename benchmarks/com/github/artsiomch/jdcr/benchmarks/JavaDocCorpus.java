@@ -0,0 +1,118 @@
+package com.github.artsiomch.jdcr.benchmarks;
+
+import java.util.Random;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Reproducible (fixed seed) samples of JavaDoc text, line by line as it comes to the plugin within
+ * {@code PsiDocToken}s.
+ */
+public enum JavaDocCorpus {
+  /** JDK like comments: text with a few font style, code and link tags. */
+  JDK {
+    @Override
+    void appendLine(@NotNull StringBuilder line, @NotNull Random random) {
+      while (line.length() < LINE_LENGTH) {
+        switch (random.nextInt(6)) {
+          case 0:
+            line.append("<code>").append(word(random)).append("</code> ");
+            break;
+          case 1:
+            line.append("<b>").append(word(random)).append(' ').append(word(random));
+            line.append("</b> ");
+            break;
+          case 2:
+            line.append("<a href=\"").append(word(random)).append(".html\">");
+            line.append(word(random)).append("</a> ");
+            break;
+          case 3:
+            line.append("<p>");
+            break;
+          default:
+            line.append(word(random)).append(' ');
+        }
+      }
+    }
+  },
+  /** Long {@code <pre>} blocks of code: a lot of text with generics, rare tags. */
+  PRE {
+    @Override
+    void appendLine(@NotNull StringBuilder line, @NotNull Random random) {
+      if (random.nextInt(20) == 0) line.append(random.nextBoolean() ? "<pre>" : "</pre>");
+      line.append("  Map&lt;String, List&lt;")
+          .append(Character.toUpperCase(word(random).charAt(0)));
+      line.append("&gt;&gt; ").append(word(random)).append(" = new HashMap&lt;&gt;();");
+      while (line.length() < LINE_LENGTH) {
+        line.append(' ').append(word(random)).append('(').append(word(random)).append(");");
+      }
+    }
+  },
+  /** Dense named and numeric escaped chars. */
+  ENTITIES {
+    @Override
+    void appendLine(@NotNull StringBuilder line, @NotNull Random random) {
+      while (line.length() < LINE_LENGTH) {
+        line.append(ENTITY_SAMPLES[random.nextInt(ENTITY_SAMPLES.length)]);
+        if (random.nextBoolean()) line.append(word(random));
+      }
+    }
+  },
+  /** Pathological: lonely and unclosed tags, brackets of comparisons, incomplete escapes. */
+  UNCLOSED {
+    @Override
+    void appendLine(@NotNull StringBuilder line, @NotNull Random random) {
+      while (line.length() < LINE_LENGTH) {
+        switch (random.nextInt(5)) {
+          case 0:
+            line.append("<b ").append(word(random)).append(' ');
+            break;
+          case 1:
+            line.append("a < b && c > d ");
+            break;
+          case 2:
+            line.append("</i> <<>> &amp ").append(word(random)).append(' ');
+            break;
+          case 3:
+            line.append("<!-- ").append(word(random)).append(' ');
+            break;
+          default:
+            line.append(word(random)).append("> ");
+        }
+      }
+    }
+  };
+
+  public static final int LINES = 1_000;
+  private static final int LINE_LENGTH = 80;
+  private static final long SEED = 0x4a444352; // JDCR
+
+  private static final String[] WORDS = {
+    "the", "value", "string", "index", "of", "returns", "specified", "character", "null", "array",
+    "Object", "hashCode", "equals", "toString", "length", "if", "is", "this", "list", "element"
+  };
+  private static final String[] ENTITY_SAMPLES = {
+    "&lt;", "&gt;", "&amp;", "&nbsp;", "&quot;", "&#64;", "&#x2014;", "&copy;", "&hellip;", " "
+  };
+
+  abstract void appendLine(@NotNull StringBuilder line, @NotNull Random random);
+
+  /** @return {@link #LINES} lines of this kind, the same for each call. */
+  @NotNull
+  public String[] generate() {
+    Random random = new Random(SEED + ordinal());
+    String[] lines = new String[LINES];
+    StringBuilder line = new StringBuilder();
+    for (int i = 0; i < LINES; i++) {
+      line.setLength(0);
+      line.append(' ');
+      appendLine(line, random);
+      lines[i] = line.toString();
+    }
+    return lines;
+  }
+
+  @NotNull
+  private static String word(@NotNull Random random) {
+    return WORDS[random.nextInt(WORDS.length)];
+  }
+}
@@ -0,0 +1,26 @@
+package com.github.artsiomch.jdcr.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Run all benchmarks with allocation profiler ({@code -prof gc}): throughput and {@code
+ * gc.alloc.rate.norm} (bytes per operation) are reported. JMH command line options (e.g. {@code
+ * TagBenchmark -p corpus=JDK}) could be passed as arguments.
+ */
+public class JdcrBenchmarks {
+
+  public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+    CommandLineOptions commandLineOptions = new CommandLineOptions(args);
+    OptionsBuilder options = new OptionsBuilder();
+    options.parent(commandLineOptions).addProfiler(GCProfiler.class);
+    if (commandLineOptions.getIncludes().isEmpty()) {
+      options.include(JdcrBenchmarks.class.getPackage().getName());
+    }
+    new Runner(options.build()).run();
+  }
+}
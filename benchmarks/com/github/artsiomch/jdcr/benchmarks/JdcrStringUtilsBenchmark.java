@@ -0,0 +1,92 @@
+package com.github.artsiomch.jdcr.benchmarks;
+
+import com.github.artsiomch.jdcr.utils.JdcrStringUtils;
+import com.github.artsiomch.jdcr.utils.Tag;
+import com.intellij.openapi.util.TextRange;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/** Parsing of single JavaDoc lines (text of {@code PsiDocToken}), one operation is one line. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@OperationsPerInvocation(JavaDocCorpus.LINES)
+public class JdcrStringUtilsBenchmark {
+
+  private static final Tag BOLD_TAG = new Tag("<b>", "</b>");
+
+  @Param({"JDK", "PRE", "ENTITIES", "UNCLOSED"})
+  public JavaDocCorpus corpus;
+
+  private String[] lines;
+  private List<TextRange>[] htmlTags;
+
+  @Setup
+  @SuppressWarnings("unchecked")
+  public void setUp() {
+    lines = corpus.generate();
+    htmlTags = new List[lines.length];
+    for (int i = 0; i < lines.length; i++) {
+      htmlTags[i] = JdcrStringUtils.getHtmlTags(lines[i]);
+    }
+  }
+
+  @Benchmark
+  public void getHtmlMarkup(Blackhole blackhole) {
+    for (String line : lines) {
+      blackhole.consume(JdcrStringUtils.getHtmlMarkup(line));
+    }
+  }
+
+  @Benchmark
+  public void getHtmlTags(Blackhole blackhole) {
+    for (String line : lines) {
+      blackhole.consume(JdcrStringUtils.getHtmlTags(line));
+    }
+  }
+
+  @Benchmark
+  public void getHtmlEscapedChars(Blackhole blackhole) {
+    for (String line : lines) {
+      blackhole.consume(JdcrStringUtils.getHtmlEscapedChars(line));
+    }
+  }
+
+  @Benchmark
+  public void getIncompleteHtmlTagStart(Blackhole blackhole) {
+    for (String line : lines) {
+      blackhole.consume(JdcrStringUtils.getIncompleteHtmlTagStart(line));
+    }
+  }
+
+  @Benchmark
+  public void getIncompleteHtmlTagEnd(Blackhole blackhole) {
+    for (String line : lines) {
+      blackhole.consume(JdcrStringUtils.getIncompleteHtmlTagEnd(line));
+    }
+  }
+
+  /** With pre-fetched HTML tags, as it's used by the plugin. */
+  @Benchmark
+  public void getValuesOfTag(Blackhole blackhole) {
+    for (int i = 0; i < lines.length; i++) {
+      blackhole.consume(JdcrStringUtils.getValuesOfTag(lines[i], BOLD_TAG, htmlTags[i]));
+    }
+  }
+}
@@ -0,0 +1,76 @@
+package com.github.artsiomch.jdcr.benchmarks;
+
+import com.github.artsiomch.jdcr.utils.JdcrStringUtils;
+import com.github.artsiomch.jdcr.utils.Tag;
+import com.intellij.openapi.util.TextRange;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/** Matching of all HTML tags of a JavaDoc line against styled tags, one operation is one line. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@OperationsPerInvocation(JavaDocCorpus.LINES)
+public class TagBenchmark {
+
+  private static final Tag[] TAGS = {
+    new Tag("<b>", "</b>"),
+    new Tag("<code>", "</code>"),
+    new Tag("<a href=", "</a>"),
+    new Tag("<pre>", "</pre>"),
+  };
+
+  @Param({"JDK", "PRE", "ENTITIES", "UNCLOSED"})
+  public JavaDocCorpus corpus;
+
+  private String[] lines;
+  private List<TextRange>[] htmlTags;
+
+  @Setup
+  @SuppressWarnings("unchecked")
+  public void setUp() {
+    lines = corpus.generate();
+    htmlTags = new List[lines.length];
+    for (int i = 0; i < lines.length; i++) {
+      htmlTags[i] = JdcrStringUtils.getHtmlTags(lines[i]);
+    }
+  }
+
+  @Benchmark
+  public void openIn(Blackhole blackhole) {
+    for (int i = 0; i < lines.length; i++) {
+      for (TextRange range : htmlTags[i]) {
+        for (Tag tag : TAGS) {
+          blackhole.consume(tag.openIn(lines[i], range.getStartOffset(), range.getEndOffset()));
+        }
+      }
+    }
+  }
+
+  @Benchmark
+  public void closeIn(Blackhole blackhole) {
+    for (int i = 0; i < lines.length; i++) {
+      for (TextRange range : htmlTags[i]) {
+        for (Tag tag : TAGS) {
+          blackhole.consume(tag.closeIn(lines[i], range.getStartOffset(), range.getEndOffset()));
+        }
+      }
+    }
+  }
+}
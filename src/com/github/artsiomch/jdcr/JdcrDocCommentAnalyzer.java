@@ -0,0 +1,680 @@
+package com.github.artsiomch.jdcr;
+
+import com.github.artsiomch.jdcr.utils.HtmlEntities;
+import com.github.artsiomch.jdcr.utils.HtmlMarkup;
+import com.github.artsiomch.jdcr.utils.JdcrPsiTreeUtils;
+import com.github.artsiomch.jdcr.utils.JdcrStringUtils;
+import com.github.artsiomch.jdcr.utils.RangeBuffer;
+import com.github.artsiomch.jdcr.utils.Tag;
+import com.github.artsiomch.jdcr.utils.TagPairingIndex;
+import com.intellij.openapi.editor.DefaultLanguageHighlighterColors;
+import com.intellij.openapi.editor.colors.TextAttributesKey;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.util.Key;
+import com.intellij.openapi.util.ModificationTracker;
+import com.intellij.openapi.util.Pair;
+import com.intellij.openapi.util.TextRange;
+import com.intellij.psi.JavaDocTokenType;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiRecursiveElementWalkingVisitor;
+import com.intellij.psi.impl.source.javadoc.PsiDocMethodOrFieldRef;
+import com.intellij.psi.impl.source.tree.JavaDocElementType;
+import com.intellij.psi.javadoc.PsiDocComment;
+import com.intellij.psi.javadoc.PsiDocToken;
+import com.intellij.psi.javadoc.PsiInlineDocTag;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
+import com.intellij.psi.util.ParameterizedCachedValue;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Analyse whole {@link PsiDocComment} at once. Result is cached at the comment till the next
+ * modification of its file and shared by {@link JdcrAnnotator} and {@link JdcrFoldingBuilder}.
+ * Comments with the same text share the result through {@link JdcrDocCommentModelCache}, comments
+ * of library sources are read from {@link JdcrDocCommentIndex}. Highlighted tags are taken from
+ * {@link JdcrTagCatalog}, models are re-analysed when it changes.
+ */
+class JdcrDocCommentAnalyzer {
+
+  private static final Tag LI_TAG = new Tag("<li>", "</li>");
+
+  private static final int LENGTH_DOC_INLINE_TAG_END = 1; // }
+  private static final Key<
+          ParameterizedCachedValue<JdcrDocCommentModel, Pair<PsiDocComment, WorkBudget>>>
+      MODEL_KEY = Key.create("JDCR doc comment model");
+
+  @NotNull private final PsiDocComment psiDocComment;
+  private final int commentStart;
+  @NotNull private final CharSequence commentText;
+  // Only single token analysis: complete HTML tags, escaped chars and inline JavaDoc tags.
+  private final boolean quick;
+  // Tags with highlighted values, the same for the whole comment.
+  @NotNull private final JdcrTagCatalog.Compiled tags;
+  // In order of finding, sorted and coalesced when the whole comment is walked.
+  private final Folds folds = new Folds();
+  private final Highlights highlights = new Highlights();
+  // DOC_COMMENT_DATA tokens with (multiline) HTML tags, paired when the whole comment is walked.
+  private final List<DocTokenMarkup> docTokensWithTags = new ArrayList<>();
+  // Values of catalog tags paired through all DOC_COMMENT_DATA children of the parent.
+  private final Map<PsiElement, TagPairingIndex> tagPairingIndexes = new HashMap<>();
+
+  // Reused for parts of ranges between line breaks.
+  private final RangeBuffer lineParts = new RangeBuffer();
+
+  // State of currently analysed element.
+  private PsiElement element;
+  private boolean highlighted;
+  private RangeBuffer foundHtmlTags = RangeBuffer.EMPTY;
+  private RangeBuffer multiLineTagRangesInParent = RangeBuffer.EMPTY;
+
+  private JdcrDocCommentAnalyzer(
+      @NotNull PsiDocComment psiDocComment, @NotNull JdcrTagCatalog.Compiled tags, boolean quick) {
+    this.psiDocComment = psiDocComment;
+    this.tags = tags;
+    this.commentStart = psiDocComment.getTextRange().getStartOffset();
+    this.commentText = psiDocComment.getNode().getChars();
+    this.quick = quick;
+  }
+
+  @NotNull
+  static JdcrDocCommentModel getModel(@NotNull PsiDocComment psiDocComment) {
+    return getModel(psiDocComment, null);
+  }
+
+  /**
+   * Same as {@link #getModel(PsiDocComment)} if the model is cached, indexed or {@code budget}
+   * allows to analyse the comment, {@link #getQuickModel} otherwise. Each cache is looked up once.
+   *
+   * @param budget {@code null} to analyse the comment anyway
+   */
+  @NotNull
+  static JdcrDocCommentModel getModel(
+      @NotNull PsiDocComment psiDocComment, @Nullable WorkBudget budget) {
+    return CachedValuesManager.getManager(psiDocComment.getProject())
+        .getParameterizedCachedValue(
+            psiDocComment,
+            MODEL_KEY,
+            JdcrDocCommentAnalyzer::computeModel,
+            false,
+            Pair.create(psiDocComment, budget));
+  }
+
+  /**
+   * Model of library sources comment from {@link JdcrDocCommentIndex}, by text from {@link
+   * JdcrDocCommentModelCache} or analysed if the budget allows.
+   */
+  @NotNull
+  private static CachedValueProvider.Result<JdcrDocCommentModel> computeModel(
+      @NotNull Pair<PsiDocComment, WorkBudget> commentWithBudget) {
+    PsiDocComment psiDocComment = commentWithBudget.first;
+    WorkBudget budget = commentWithBudget.second;
+    JdcrTagCatalog catalog = JdcrTagCatalog.getInstance();
+    long catalogModificationCount = catalog.getModificationCount();
+    JdcrTagCatalog.Compiled tags = catalog.getCompiled();
+    JdcrDocCommentModel model = JdcrDocCommentIndex.getModel(psiDocComment, tags);
+    if (model == null) {
+      JdcrDocCommentModelCache cache = JdcrDocCommentModelCache.getInstance();
+      CharSequence text = psiDocComment.getNode().getChars();
+      model = cache.get(text, tags.getFingerprint());
+      if (model == null) {
+        if (budget != null && !budget.tryConsume(text.length())) {
+          budget.exceeded(psiDocComment);
+          // not kept: the comment is analysed in full by the next pass
+          return CachedValueProvider.Result.create(
+              getQuickModel(psiDocComment, tags), ModificationTracker.EVER_CHANGED);
+        }
+        model = analyse(psiDocComment, tags);
+        cache.put(text, tags.getFingerprint(), model);
+      }
+    }
+    // catalog changed during the analysis: the model may be made with the old one
+    return catalogModificationCount == catalog.getModificationCount()
+        ? CachedValueProvider.Result.create(model, psiDocComment, catalog)
+        : CachedValueProvider.Result.create(model, ModificationTracker.EVER_CHANGED);
+  }
+
+  /** Full analysis of the comment with the current {@link JdcrTagCatalog}, not cached. */
+  @NotNull
+  static JdcrDocCommentModel analyse(@NotNull PsiDocComment psiDocComment) {
+    return analyse(psiDocComment, JdcrTagCatalog.getInstance().getCompiled());
+  }
+
+  /** Full analysis of the comment with {@code tags}, not cached. */
+  @NotNull
+  static JdcrDocCommentModel analyse(
+      @NotNull PsiDocComment psiDocComment, @NotNull JdcrTagCatalog.Compiled tags) {
+    return new JdcrDocCommentAnalyzer(psiDocComment, tags, false).analyse();
+  }
+
+  /**
+   * Cheap model for comments over {@link WorkBudget}: complete HTML tags, escaped chars and inline
+   * JavaDoc tags, without multiline tags, values of HTML tags and link labels. Not cached.
+   */
+  @NotNull
+  private static JdcrDocCommentModel getQuickModel(
+      @NotNull PsiDocComment psiDocComment, @NotNull JdcrTagCatalog.Compiled tags) {
+    return new JdcrDocCommentAnalyzer(psiDocComment, tags, true).analyse();
+  }
+
+  /** Elements highlights are made for. */
+  private static boolean isHighlighted(@NotNull PsiElement element) {
+    return (element instanceof PsiDocToken
+            && ((PsiDocToken) element).getTokenType() == JavaDocTokenType.DOC_COMMENT_DATA)
+        || element instanceof PsiInlineDocTag
+        || element instanceof PsiDocMethodOrFieldRef;
+  }
+
+  /** Fold ranges (relative to the comment) with their placeholder texts. */
+  private static class Folds {
+    private final RangeBuffer ranges = new RangeBuffer();
+    private final List<String> placeholderTexts = new ArrayList<>();
+
+    private void add(int start, int end, @NotNull String placeholderText) {
+      ranges.add(start, end);
+      placeholderTexts.add(placeholderText);
+    }
+  }
+
+  /** Highlight ranges (relative to the comment) with their text attributes. */
+  private static class Highlights {
+    private final RangeBuffer ranges = new RangeBuffer();
+    private final List<TextAttributesKey> textAttributesKeys = new ArrayList<>();
+
+    private void add(int start, int end, @NotNull TextAttributesKey textAttributesKey) {
+      ranges.add(start, end);
+      textAttributesKeys.add(textAttributesKey);
+    }
+  }
+
+  /** HTML markup of {@link PsiDocToken}, found once and used for both pairing and analysis. */
+  private static class DocTokenMarkup {
+    @NotNull private final PsiDocToken psiDocToken;
+    @NotNull private final CharSequence text; // not copied
+    @NotNull private final HtmlMarkup htmlMarkup;
+    @NotNull private final RangeBuffer multiLineTagRangesInParent;
+
+    private DocTokenMarkup(@NotNull PsiDocToken psiDocToken, boolean quick) {
+      this.psiDocToken = psiDocToken;
+      this.text = psiDocToken.getNode().getChars();
+      this.htmlMarkup = JdcrStringUtils.getHtmlMarkup(text);
+      this.multiLineTagRangesInParent =
+          quick
+              ? RangeBuffer.EMPTY
+              : JdcrPsiTreeUtils.getMultiLineTagRangesInParent(
+                  psiDocToken, htmlMarkup.getIncompleteTagEnd());
+    }
+  }
+
+  /** Walk the comment once, tokens and tags are analysed as they are met. */
+  @NotNull
+  private JdcrDocCommentModel analyse() {
+    psiDocComment.accept(
+        new PsiRecursiveElementWalkingVisitor() {
+          @Override
+          public void visitElement(PsiElement element) {
+            ProgressManager.checkCanceled();
+            if (element instanceof PsiDocToken) {
+              PsiDocToken psiDocToken = (PsiDocToken) element;
+              if (JdcrPsiTreeUtils.isNotInsideCodeOrLiteralTag(psiDocToken)) {
+                analyseDocToken(new DocTokenMarkup(psiDocToken, quick));
+              }
+            } else if (element instanceof PsiInlineDocTag) {
+              analyseInlineDocTag((PsiInlineDocTag) element);
+            } else if (element instanceof PsiDocMethodOrFieldRef && !quick) {
+              // fix {@link #to_method_call} is not highlighted:
+              // https://youtrack.jetbrains.com/issue/IDEA-197760
+              annotateLinkTagMethodRef((PsiDocMethodOrFieldRef) element);
+            }
+            super.visitElement(element);
+          }
+        });
+
+    if (!quick) {
+      pairTags(docTokensWithTags);
+      for (DocTokenMarkup docToken : docTokensWithTags) {
+        ProgressManager.checkCanceled();
+        startElement(docToken.psiDocToken);
+        annotateTagValues();
+      }
+    }
+
+    Folds coalescedFolds = coalesceFolds();
+    Highlights coalescedHighlights = coalesceHighlights();
+    return new JdcrDocCommentModel(
+        coalescedFolds.ranges,
+        coalescedFolds.placeholderTexts.toArray(new String[0]),
+        folds.ranges.size(),
+        coalescedHighlights.ranges,
+        coalescedHighlights.textAttributesKeys.toArray(new TextAttributesKey[0]),
+        highlights.ranges.size());
+  }
+
+  /**
+   * Sort folds and merge sequential ones, or ones separated only by spaces within a line, into a
+   * single region. The spaces go to the placeholder, so the folded text looks the same with fewer
+   * regions in the editor. Line breaks are never folded, they would join the lines.
+   *
+   * <p>Folds may be nested: parts of a multiline tag around an inline tag ({@code <a
+   * href="{@link Foo}">}) contain the folds of the inline tag. Only top level folds are merged, a
+   * fold is merged when it starts at or after the end of all open folds. Nested folds are kept as
+   * they are, so no merged fold partially overlaps another one (editor would drop one of them).
+   */
+  @NotNull
+  private Folds coalesceFolds() {
+    int count = folds.ranges.size();
+    // starts with indexes, sorted by start (stable)
+    long[] order = new long[count];
+    for (int i = 0; i < count; i++) {
+      order[i] = ((long) folds.ranges.getStart(i) << 32) | i;
+    }
+    Arrays.sort(order);
+    sortSameStartsByEndDescending(order);
+    Folds result = new Folds();
+    // result indexes of folds containing the current one, the outermost first
+    int[] openFolds = new int[count];
+    int openCount = 0;
+    int lastTopLevel = -1;
+    for (long startWithIndex : order) {
+      int index = (int) startWithIndex;
+      int start = folds.ranges.getStart(index);
+      int end = folds.ranges.getEnd(index);
+      String placeholderText = folds.placeholderTexts.get(index);
+      while (openCount > 0 && result.ranges.getEnd(openFolds[openCount - 1]) <= start) {
+        openCount--;
+      }
+      if (openCount > 0) {
+        int open = openFolds[openCount - 1];
+        if (result.ranges.getStart(open) == start && result.ranges.getEnd(open) == end) {
+          continue; // duplicate
+        }
+        // nested
+        openFolds[openCount++] = result.ranges.size();
+        result.add(start, end, placeholderText);
+      } else if (lastTopLevel >= 0 && isSpacesOnly(result.ranges.getEnd(lastTopLevel), start)) {
+        int lastEnd = result.ranges.getEnd(lastTopLevel);
+        result.ranges.set(lastTopLevel, result.ranges.getStart(lastTopLevel), end);
+        result.placeholderTexts.set(
+            lastTopLevel,
+            result.placeholderTexts.get(lastTopLevel)
+                + commentText.subSequence(lastEnd, start)
+                + placeholderText);
+        openFolds[openCount++] = lastTopLevel;
+      } else {
+        lastTopLevel = result.ranges.size();
+        openFolds[openCount++] = lastTopLevel;
+        result.add(start, end, placeholderText);
+      }
+    }
+    return result;
+  }
+
+  /** Outer folds go first among folds with the same start: {@code order} is sorted by start. */
+  private void sortSameStartsByEndDescending(@NotNull long[] order) {
+    // insertion sort, same starts are rare and few
+    for (int i = 1; i < order.length; i++) {
+      long current = order[i];
+      int start = folds.ranges.getStart((int) current);
+      int end = folds.ranges.getEnd((int) current);
+      int j = i - 1;
+      while (j >= 0
+          && folds.ranges.getStart((int) order[j]) == start
+          && folds.ranges.getEnd((int) order[j]) < end) {
+        order[j + 1] = order[j];
+        j--;
+      }
+      order[j + 1] = current;
+    }
+  }
+
+  /**
+   * Sort highlights by start, drop exact duplicates (value of nested tags: {@code <pre>{@code}) and
+   * join touching or overlapping ones with the same attributes, so the editor gets fewer range
+   * highlighters.
+   * {@link JdcrColorSettingsPage#BORDERED} ranges are never joined: each one is drawn in its own
+   * box. Different attributes of the same range are kept as separate layers, an annotation has only
+   * one {@link TextAttributesKey}.
+   */
+  @NotNull
+  private Highlights coalesceHighlights() {
+    int count = highlights.ranges.size();
+    // starts with indexes, sorted by start (stable)
+    long[] order = new long[count];
+    for (int i = 0; i < count; i++) {
+      order[i] = ((long) highlights.ranges.getStart(i) << 32) | i;
+    }
+    Arrays.sort(order);
+    Highlights result = new Highlights();
+    // last result index of each key
+    Map<TextAttributesKey, Integer> lastIndexes = new HashMap<>();
+    for (long startWithIndex : order) {
+      int index = (int) startWithIndex;
+      int start = highlights.ranges.getStart(index);
+      int end = highlights.ranges.getEnd(index);
+      TextAttributesKey textAttributesKey = highlights.textAttributesKeys.get(index);
+      Integer last = lastIndexes.get(textAttributesKey);
+      if (last != null) {
+        int lastStart = result.ranges.getStart(last);
+        int lastEnd = result.ranges.getEnd(last);
+        if (lastStart == start && lastEnd == end) continue; // duplicate
+        if (start <= lastEnd && textAttributesKey != JdcrColorSettingsPage.BORDERED) {
+          // touching or overlapping
+          result.ranges.set(last, lastStart, Math.max(lastEnd, end));
+          continue;
+        }
+      }
+      lastIndexes.put(textAttributesKey, result.ranges.size());
+      result.add(start, end, textAttributesKey);
+    }
+    return result;
+  }
+
+  /** @return {@code true} if comment text {@code [start, end)} is empty or spaces/tabs only */
+  private boolean isSpacesOnly(int start, int end) {
+    if (start > end) return false; // overlapping folds are not merged
+    for (int i = start; i < end; i++) {
+      char c = commentText.charAt(i);
+      if (c != ' ' && c != '\t') return false;
+    }
+    return true;
+  }
+
+  private void startElement(@NotNull PsiElement element) {
+    this.element = element;
+    highlighted = isHighlighted(element);
+  }
+
+  /**
+   * Pair open/close tags of {@link JdcrTagCatalog} (including multiline tags) through all
+   * DOC_COMMENT_DATA children of each parent, so values spread over several tokens are found
+   * without looking ahead from every token.
+   */
+  private void pairTags(@NotNull List<DocTokenMarkup> docTokens) {
+    Map<PsiElement, TagPairingIndex.Builder> builders = new HashMap<>();
+    for (DocTokenMarkup docToken : docTokens) {
+      ProgressManager.checkCanceled();
+      PsiDocToken psiDocToken = docToken.psiDocToken;
+      PsiElement parent = psiDocToken.getParent();
+      TagPairingIndex.Builder builder =
+          builders.computeIfAbsent(parent, p -> new TagPairingIndex.Builder(tags.getResolver()));
+      RangeBuffer multiLineTagRanges = docToken.multiLineTagRangesInParent;
+      if (!multiLineTagRanges.isEmpty()) {
+        builder.addTag(
+            getMultilineTagText(parent, multiLineTagRanges),
+            multiLineTagRanges.getFirstStart(),
+            multiLineTagRanges.getLastEnd());
+      }
+      builder.addTags(
+          docToken.text,
+          docToken.htmlMarkup.getTagRanges(),
+          psiDocToken.getStartOffsetInParent());
+    }
+    builders.forEach((parent, builder) -> tagPairingIndexes.put(parent, builder.build()));
+  }
+
+  private void analyseDocToken(@NotNull DocTokenMarkup docToken) {
+    PsiDocToken psiDocToken = docToken.psiDocToken;
+    HtmlMarkup htmlMarkup = docToken.htmlMarkup;
+    startElement(psiDocToken);
+    foundHtmlTags = htmlMarkup.getTagRanges();
+    multiLineTagRangesInParent = docToken.multiLineTagRangesInParent;
+
+    foldHtmlTagsAndEscapedChars(docToken);
+    if (highlighted) {
+      annotateDocToken(htmlMarkup);
+      if (!quick && (!foundHtmlTags.isEmpty() || !multiLineTagRangesInParent.isEmpty())) {
+        // tag values are annotated when all tags of the comment are paired.
+        docTokensWithTags.add(docToken);
+      }
+    }
+    foundHtmlTags = RangeBuffer.EMPTY;
+    multiLineTagRangesInParent = RangeBuffer.EMPTY;
+  }
+
+  private void analyseInlineDocTag(@NotNull PsiInlineDocTag psiInlineDocTag) {
+    startElement(psiInlineDocTag);
+    String tagName = psiInlineDocTag.getName();
+    if (highlighted) {
+      if (JdcrStringUtils.CODE_TAGS.contains(tagName)
+          || JdcrStringUtils.LINK_TAGS.contains(tagName)) {
+        annotateJavaDocTagStartEnd(psiInlineDocTag);
+      }
+      if (tagName.equals("code")) { // @code
+        annotateDocTagValue(psiInlineDocTag);
+      }
+    }
+    if (JdcrPsiTreeUtils.isCompleteJavaDocTag(psiInlineDocTag)) {
+      foldInlineJavaDocTag(psiInlineDocTag);
+    }
+  }
+
+  // ---------------------------------------------------------------------------------------------
+  // Folding
+  // ---------------------------------------------------------------------------------------------
+
+  /**
+   * Add Folds for inline JavaDoc tags: {@link JdcrStringUtils#CODE_TAGS} {@link
+   * JdcrStringUtils#LINK_TAGS}
+   */
+  private void foldInlineJavaDocTag(@NotNull PsiInlineDocTag psiInlineDocTag) {
+    String tagName = psiInlineDocTag.getName();
+    if (JdcrStringUtils.CODE_TAGS.contains(tagName)) {
+      foldJavaDocTagStartEnd(psiInlineDocTag);
+    } else if (JdcrStringUtils.LINK_TAGS.contains(tagName)) {
+      foldJavaDocTagStartEnd(psiInlineDocTag);
+      if (quick) return;
+
+      // Folding label part of @link tag
+      Arrays.stream(psiInlineDocTag.getChildren())
+          .filter(
+              child ->
+                  // link through # within current file
+                  (child.getNode().getElementType() == JavaDocElementType.DOC_METHOD_OR_FIELD_REF
+                          // link to outer file
+                          || child.getNode().getElementType()
+                              == JavaDocElementType.DOC_REFERENCE_HOLDER)
+                      // @link tag has text label part to fold
+                      && child.getNextSibling() != psiInlineDocTag.getLastChild())
+          .findFirst()
+          .ifPresent(
+              linkToShow ->
+                  foldExcludingLineBreaks(
+                      psiInlineDocTag,
+                      linkToShow.getTextRange().getEndOffset()
+                          - psiInlineDocTag.getTextRange().getStartOffset(),
+                      psiInlineDocTag.getTextLength() - LENGTH_DOC_INLINE_TAG_END));
+    }
+  }
+
+  /** Use only for <b>complete</b> DocTag */
+  private void foldJavaDocTagStartEnd(@NotNull PsiInlineDocTag psiInlineDocTag) {
+    // fold JavaDoc tag Start
+    int tagStartLength = 2 /* `{@` */ + psiInlineDocTag.getName().length(); // `code`, `link` ...
+    if (tagStartLength != psiInlineDocTag.getLastChild().getStartOffsetInParent()) {
+      tagStartLength += 1; /* include space after tag name if any*/
+    }
+    foldExcludingLineBreaks(psiInlineDocTag, 0, tagStartLength);
+    // fold JavaDoc tag End: `}`
+    addFold(psiInlineDocTag.getLastChild(), 0, 1, "");
+  }
+
+  /** Fold parts of {@code [start, end)} in {@code element} between line breaks. */
+  private void foldExcludingLineBreaks(@NotNull PsiElement element, int start, int end) {
+    lineParts.clear();
+    JdcrPsiTreeUtils.excludeLineBreaks(element, start, end, lineParts);
+    for (int i = 0; i < lineParts.size(); i++) {
+      addFold(element, lineParts.getStart(i), lineParts.getEnd(i), "");
+    }
+  }
+
+  /** Add Folds for HTML tags and Escaped Chars */
+  private void foldHtmlTagsAndEscapedChars(@NotNull DocTokenMarkup docToken) {
+    PsiDocToken psiDocToken = docToken.psiDocToken;
+    CharSequence docTokenText = docToken.text;
+    for (int i = 0; i < foundHtmlTags.size(); i++) {
+      int start = foundHtmlTags.getStart(i);
+      int end = foundHtmlTags.getEnd(i);
+      if (LI_TAG.openIn(docTokenText, start, end)) {
+        addFold(psiDocToken, start, end, " - ");
+        //              } else if (tagsToFold.contains("<td>")) {
+        //                addFold(psiDocToken, start, end, "\t");
+      } else {
+        addFold(psiDocToken, start, end, ""); // "◊"
+      }
+    }
+    // Check for Multi-line tag.
+    for (int i = 0; i < multiLineTagRangesInParent.size(); i++) {
+      addFold(
+          psiDocToken.getParent(),
+          multiLineTagRangesInParent.getStart(i),
+          multiLineTagRangesInParent.getEnd(i),
+          "");
+    }
+
+    RangeBuffer escapedChars = docToken.htmlMarkup.getEscapedCharRanges();
+    for (int i = 0; i < escapedChars.size(); i++) {
+      int start = escapedChars.getStart(i);
+      int end = escapedChars.getEnd(i);
+      addFold(psiDocToken, start, end, HtmlEntities.unescape(docTokenText, start, end));
+    }
+  }
+
+  /** @param start start of range relative to {@code element} */
+  private void addFold(
+      @NotNull PsiElement element, int start, int end, @NotNull String placeholderText) {
+    int shift = element.getTextRange().getStartOffset() - commentStart;
+    folds.add(start + shift, end + shift, placeholderText);
+  }
+
+  // ---------------------------------------------------------------------------------------------
+  // Highlighting
+  // ---------------------------------------------------------------------------------------------
+
+  private void annotateDocToken(@NotNull HtmlMarkup htmlMarkup) {
+    // Annotate Html Tags (including multiline Tags)
+    annotateHtmlTags();
+    // Annotate Html Escaped Chars
+    doAnnotate(
+        htmlMarkup.getEscapedCharRanges(),
+        element.getTextRange().getStartOffset(),
+        JdcrColorSettingsPage.BORDERED);
+  }
+
+  private void annotateJavaDocTagStartEnd(@NotNull PsiInlineDocTag psiInlineDocTag) {
+    // annotate JavaDoc tag Start
+    int tagStart = psiInlineDocTag.getTextRange().getStartOffset();
+    doAnnotate(
+        tagStart,
+        tagStart + 2 /* `{@` */ + psiInlineDocTag.getName().length(),
+        JdcrColorSettingsPage.BORDERED);
+    // annotate JavaDoc tag End
+    if (JdcrPsiTreeUtils.isCompleteJavaDocTag(psiInlineDocTag)) {
+      TextRange tagEnd = psiInlineDocTag.getLastChild().getTextRange(); // }
+      doAnnotate(tagEnd.getStartOffset(), tagEnd.getEndOffset(), JdcrColorSettingsPage.BORDERED);
+    }
+  }
+
+  private void annotateLinkTagMethodRef(@NotNull PsiDocMethodOrFieldRef psiDocMethodOrFieldRef) {
+    startElement(psiDocMethodOrFieldRef);
+    int elementStart = element.getTextRange().getStartOffset();
+    // multiline link reference case: {@link Integer#toString(
+    // ) toString}
+    annotateExcludingLineBreaks(
+        element,
+        element.getTextOffset() - elementStart,
+        element.getTextLength(),
+        JdcrColorSettingsPage.LINK_TAG);
+  }
+
+  private void annotateDocTagValue(@NotNull PsiInlineDocTag psiInlineDocTag) {
+    annotateExcludingLineBreaks(
+        psiInlineDocTag,
+        2 /* {@ */ + psiInlineDocTag.getName().length(),
+        psiInlineDocTag.getTextLength()
+            - (JdcrPsiTreeUtils.isCompleteJavaDocTag(psiInlineDocTag) ? 1 /* } */ : 0),
+        JdcrColorSettingsPage.CODE_TAG);
+  }
+
+  private void annotateHtmlTags() {
+    doAnnotate(
+        foundHtmlTags, element.getTextRange().getStartOffset(), JdcrColorSettingsPage.BORDERED);
+    // Annotate multiline Tag, fix https://youtrack.jetbrains.com/issue/IDEA-198738
+    int parentStart = element.getParent().getTextRange().getStartOffset();
+    for (int i = 0; i < multiLineTagRangesInParent.size(); i++) {
+      int start = multiLineTagRangesInParent.getStart(i) + parentStart;
+      int end = multiLineTagRangesInParent.getEnd(i) + parentStart;
+      doAnnotate(start, end, DefaultLanguageHighlighterColors.DOC_COMMENT_MARKUP);
+      doAnnotate(start, end, JdcrColorSettingsPage.BORDERED);
+    }
+  }
+
+  /** Annotate values of tags opened within current element, see {@link #pairTags}. */
+  private void annotateTagValues() {
+    PsiElement parent = element.getParent();
+    TagPairingIndex tagPairingIndex = tagPairingIndexes.get(parent);
+    if (tagPairingIndex == null) return;
+    int startInParent = element.getStartOffsetInParent();
+    int endInParent = startInParent + element.getTextLength();
+    int parentStart = parent.getTextRange().getStartOffset();
+    for (int i = tagPairingIndex.firstValueStartedAfter(startInParent);
+        i < tagPairingIndex.size() && tagPairingIndex.getValueStart(i) <= endInParent;
+        i++) {
+      TextAttributesKey textAttributesKey =
+          tags.getTextAttributesKey(tagPairingIndex.getValueTag(i));
+      int valueStart = tagPairingIndex.getValueStart(i);
+      int valueEnd = tagPairingIndex.getValueEnd(i);
+      if (valueEnd <= endInParent) {
+        // tag closed withing current PsiDocToken
+        doAnnotate(valueStart + parentStart, valueEnd + parentStart, textAttributesKey);
+      } else {
+        // multiline value of tag
+        annotateExcludingLineBreaks(parent, valueStart, valueEnd, textAttributesKey);
+      }
+    }
+  }
+
+  /** Line breaks between parts of multiline tag are replaced by space. */
+  private CharSequence getMultilineTagText(
+      @NotNull PsiElement parent, @NotNull RangeBuffer multilineTagRangesInParent) {
+    // parts are taken from the comment text, no text of parent is built
+    int parentStart = parent.getTextRange().getStartOffset() - commentStart;
+    StringBuilder result = new StringBuilder();
+    for (int i = 0; i < multilineTagRangesInParent.size(); i++) {
+      if (result.length() > 0) result.append(' ');
+      result.append(
+          commentText,
+          parentStart + multilineTagRangesInParent.getStart(i),
+          parentStart + multilineTagRangesInParent.getEnd(i));
+    }
+    return result;
+  }
+
+  /** Annotate parts of {@code [start, end)} in {@code element} between line breaks. */
+  private void annotateExcludingLineBreaks(
+      @NotNull PsiElement element,
+      int start,
+      int end,
+      @NotNull TextAttributesKey textAttributesKey) {
+    lineParts.clear();
+    JdcrPsiTreeUtils.excludeLineBreaks(element, start, end, lineParts);
+    doAnnotate(lineParts, element.getTextRange().getStartOffset(), textAttributesKey);
+  }
+
+  /** @param ranges relative to {@code shift} */
+  private void doAnnotate(
+      @NotNull RangeBuffer ranges, int shift, @NotNull TextAttributesKey textAttributesKey) {
+    for (int i = 0; i < ranges.size(); i++) {
+      doAnnotate(ranges.getStart(i) + shift, ranges.getEnd(i) + shift, textAttributesKey);
+    }
+  }
+
+  private void doAnnotate(
+      int absoluteStart, int absoluteEnd, @NotNull TextAttributesKey textAttributesKey) {
+    highlights.add(absoluteStart - commentStart, absoluteEnd - commentStart, textAttributesKey);
+  }
+}
@@ -0,0 +1,296 @@
+package com.github.artsiomch.jdcr;
+
+import com.github.artsiomch.jdcr.utils.JdcrPsiTreeUtils;
+import com.github.artsiomch.jdcr.utils.RangeBuffer;
+import com.intellij.ide.highlighter.JavaFileType;
+import com.intellij.openapi.editor.colors.TextAttributesKey;
+import com.intellij.openapi.project.DumbService;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.JarFileSystem;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.javadoc.PsiDocComment;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
+import com.intellij.util.indexing.FileBasedIndex;
+import com.intellij.util.indexing.FileContent;
+import com.intellij.util.indexing.ID;
+import com.intellij.util.indexing.SingleEntryFileBasedIndexExtension;
+import com.intellij.util.indexing.SingleEntryIndexer;
+import com.intellij.util.io.DataExternalizer;
+import com.intellij.util.io.DataInputOutputUtil;
+import com.intellij.util.io.IOUtil;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Persistent index of {@link JdcrDocCommentModel}s of library sources: Java files inside archives
+ * (JDK {@code src.zip}, {@code *-sources.jar}). They never change, so their comments are analysed
+ * once at indexing and read back on opening instead of the analysis.
+ *
+ * <p>Comments are indexed with {@link JdcrTagCatalog.Compiled#DEFAULT}, not with the catalog from
+ * the settings, so the value depends on the file content only. {@link JdcrDocCommentAnalyzer}
+ * analyses the comments itself when the catalog is changed in the settings, in dumb mode (index is
+ * not available) and when the comment text differs from the indexed one.
+ *
+ * <p>Value of the file is models by comment start offset along with length and 64-bit digest of
+ * the comment text, ranges are written as var-ints deltas, placeholders and text attributes keys as
+ * indexes in the file's table of distinct strings.
+ */
+public class JdcrDocCommentIndex
+    extends SingleEntryFileBasedIndexExtension<Map<Integer, JdcrDocCommentIndex.CommentModel>> {
+
+  private static final ID<Integer, Map<Integer, CommentModel>> NAME =
+      ID.create("com.github.artsiomch.jdcr.JdcrDocCommentIndex");
+  // Increment on any change of JdcrDocCommentAnalyzer results or of the serialized form.
+  private static final int VERSION = 3;
+
+  /** Model of the comment with the text it was made of, as length and digest. */
+  static class CommentModel {
+    private final int textLength;
+    private final long textDigest;
+    @NotNull private final JdcrDocCommentModel model;
+
+    CommentModel(int textLength, long textDigest, @NotNull JdcrDocCommentModel model) {
+      this.textLength = textLength;
+      this.textDigest = textDigest;
+      this.model = model;
+    }
+
+    CommentModel(@NotNull CharSequence text, @NotNull JdcrDocCommentModel model) {
+      this(text.length(), digest(text), model);
+    }
+
+    /** @return {@code true} if the model is made of {@code text} */
+    boolean isMadeOf(@NotNull CharSequence text) {
+      return text.length() == textLength && digest(text) == textDigest;
+    }
+
+    /** 64-bit FNV-1a of the chars: a changed comment of the same length is missed 1 in 2^64. */
+    private static long digest(@NotNull CharSequence text) {
+      long hash = 0xcbf29ce484222325L;
+      for (int i = 0; i < text.length(); i++) {
+        hash = (hash ^ text.charAt(i)) * 0x100000001b3L;
+      }
+      return hash;
+    }
+
+    @NotNull
+    JdcrDocCommentModel getModel() {
+      return model;
+    }
+  }
+
+  @NotNull
+  @Override
+  public ID<Integer, Map<Integer, CommentModel>> getName() {
+    return NAME;
+  }
+
+  @NotNull
+  @Override
+  public SingleEntryIndexer<Map<Integer, CommentModel>> getIndexer() {
+    return new SingleEntryIndexer<Map<Integer, CommentModel>>(false) {
+      @Nullable
+      @Override
+      protected Map<Integer, CommentModel> computeValue(@NotNull FileContent inputData) {
+        Map<Integer, CommentModel> models = new HashMap<>();
+        JdcrPsiTreeUtils.visitDocComments(
+            inputData.getPsiFile(),
+            psiDocComment ->
+                models.put(
+                    psiDocComment.getTextRange().getStartOffset(),
+                    new CommentModel(
+                        psiDocComment.getNode().getChars(),
+                        JdcrDocCommentAnalyzer.analyse(
+                            psiDocComment, JdcrTagCatalog.Compiled.DEFAULT))));
+        return models;
+      }
+    };
+  }
+
+  @NotNull
+  @Override
+  public DataExternalizer<Map<Integer, CommentModel>> getValueExternalizer() {
+    return new ModelsExternalizer();
+  }
+
+  @Override
+  public int getVersion() {
+    return VERSION;
+  }
+
+  @NotNull
+  @Override
+  public FileBasedIndex.InputFilter getInputFilter() {
+    return JdcrDocCommentIndex::isIndexed;
+  }
+
+  private static boolean isIndexed(@NotNull VirtualFile file) {
+    return file.getFileType() == JavaFileType.INSTANCE
+        && file.getFileSystem() instanceof JarFileSystem;
+  }
+
+  /**
+   * @param tags catalog the model is needed for
+   * @return indexed model of library source comment, {@code null} if the comment is not in library
+   *     sources, the index is not available (dumb mode), {@code tags} are not the default ones or
+   *     of another text at the comment offset.
+   */
+  @Nullable
+  static JdcrDocCommentModel getModel(
+      @NotNull PsiDocComment psiDocComment, @NotNull JdcrTagCatalog.Compiled tags) {
+    if (!tags.isDefault()) return null;
+    PsiFile psiFile = psiDocComment.getContainingFile();
+    if (psiFile == null) return null;
+    VirtualFile file = psiFile.getVirtualFile();
+    if (file == null || !isIndexed(file)) return null;
+    Project project = psiFile.getProject();
+    if (DumbService.isDumb(project)) return null;
+    Map<Integer, CommentModel> models =
+        CachedValuesManager.getCachedValue(
+            psiFile,
+            () -> CachedValueProvider.Result.create(getFileModels(file, project), psiFile));
+    CommentModel commentModel = models.get(psiDocComment.getTextRange().getStartOffset());
+    if (commentModel == null || !commentModel.isMadeOf(psiDocComment.getNode().getChars())) {
+      return null;
+    }
+    return commentModel.getModel();
+  }
+
+  @NotNull
+  private static Map<Integer, CommentModel> getFileModels(
+      @NotNull VirtualFile file, @NotNull Project project) {
+    Map<Integer, Map<Integer, CommentModel>> data =
+        FileBasedIndex.getInstance().getFileData(NAME, file, project);
+    for (Map<Integer, CommentModel> models : data.values()) {
+      return models;
+    }
+    return Collections.emptyMap();
+  }
+
+  private static class ModelsExternalizer
+      implements DataExternalizer<Map<Integer, CommentModel>> {
+
+    @Override
+    public void save(@NotNull DataOutput out, Map<Integer, CommentModel> models)
+        throws IOException {
+      List<String> strings = new ArrayList<>();
+      Map<String, Integer> stringIndexes = new HashMap<>();
+      for (CommentModel commentModel : models.values()) {
+        JdcrDocCommentModel model = commentModel.getModel();
+        for (int i = 0; i < model.getFoldRanges().size(); i++) {
+          stringIndexes.computeIfAbsent(model.getPlaceholderText(i), s -> addString(strings, s));
+        }
+        for (int i = 0; i < model.getHighlightRanges().size(); i++) {
+          stringIndexes.computeIfAbsent(
+              model.getTextAttributesKey(i).getExternalName(), s -> addString(strings, s));
+        }
+      }
+      DataInputOutputUtil.writeINT(out, strings.size());
+      for (String string : strings) {
+        IOUtil.writeUTF(out, string);
+      }
+
+      DataInputOutputUtil.writeINT(out, models.size());
+      for (Map.Entry<Integer, CommentModel> entry : models.entrySet()) {
+        CommentModel commentModel = entry.getValue();
+        JdcrDocCommentModel model = commentModel.getModel();
+        DataInputOutputUtil.writeINT(out, entry.getKey());
+        DataInputOutputUtil.writeINT(out, commentModel.textLength);
+        out.writeLong(commentModel.textDigest);
+        DataInputOutputUtil.writeINT(out, model.getUncoalescedFoldCount());
+        DataInputOutputUtil.writeINT(out, model.getUncoalescedHighlightCount());
+        RangeBuffer folds = model.getFoldRanges();
+        writeRanges(out, folds);
+        for (int i = 0; i < folds.size(); i++) {
+          DataInputOutputUtil.writeINT(out, stringIndexes.get(model.getPlaceholderText(i)));
+        }
+        RangeBuffer highlights = model.getHighlightRanges();
+        writeRanges(out, highlights);
+        for (int i = 0; i < highlights.size(); i++) {
+          DataInputOutputUtil.writeINT(
+              out, stringIndexes.get(model.getTextAttributesKey(i).getExternalName()));
+        }
+      }
+    }
+
+    @Override
+    public Map<Integer, CommentModel> read(@NotNull DataInput in) throws IOException {
+      String[] strings = new String[DataInputOutputUtil.readINT(in)];
+      for (int i = 0; i < strings.length; i++) {
+        strings[i] = IOUtil.readUTF(in);
+      }
+
+      int count = DataInputOutputUtil.readINT(in);
+      Map<Integer, CommentModel> models = new HashMap<>(count * 2);
+      for (int m = 0; m < count; m++) {
+        int commentStart = DataInputOutputUtil.readINT(in);
+        int textLength = DataInputOutputUtil.readINT(in);
+        long textDigest = in.readLong();
+        int uncoalescedFoldCount = DataInputOutputUtil.readINT(in);
+        int uncoalescedHighlightCount = DataInputOutputUtil.readINT(in);
+        RangeBuffer folds = readRanges(in);
+        String[] placeholderTexts = new String[folds.size()];
+        for (int i = 0; i < placeholderTexts.length; i++) {
+          placeholderTexts[i] = strings[DataInputOutputUtil.readINT(in)];
+        }
+        RangeBuffer highlights = readRanges(in);
+        TextAttributesKey[] textAttributesKeys = new TextAttributesKey[highlights.size()];
+        for (int i = 0; i < textAttributesKeys.length; i++) {
+          textAttributesKeys[i] = TextAttributesKey.find(strings[DataInputOutputUtil.readINT(in)]);
+        }
+        models.put(
+            commentStart,
+            new CommentModel(
+                textLength,
+                textDigest,
+                new JdcrDocCommentModel(
+                    folds,
+                    placeholderTexts,
+                    uncoalescedFoldCount,
+                    highlights,
+                    textAttributesKeys,
+                    uncoalescedHighlightCount)));
+      }
+      return models;
+    }
+
+    private static int addString(@NotNull List<String> strings, @NotNull String string) {
+      strings.add(string);
+      return strings.size() - 1;
+    }
+
+    /** Starts as deltas from the previous start (ranges are mostly sorted), ends as lengths. */
+    private static void writeRanges(@NotNull DataOutput out, @NotNull RangeBuffer ranges)
+        throws IOException {
+      DataInputOutputUtil.writeINT(out, ranges.size());
+      int previousStart = 0;
+      for (int i = 0; i < ranges.size(); i++) {
+        DataInputOutputUtil.writeINT(out, ranges.getStart(i) - previousStart);
+        DataInputOutputUtil.writeINT(out, ranges.getEnd(i) - ranges.getStart(i));
+        previousStart = ranges.getStart(i);
+      }
+    }
+
+    @NotNull
+    private static RangeBuffer readRanges(@NotNull DataInput in) throws IOException {
+      int size = DataInputOutputUtil.readINT(in);
+      RangeBuffer ranges = new RangeBuffer(size);
+      int start = 0;
+      for (int i = 0; i < size; i++) {
+        start += DataInputOutputUtil.readINT(in);
+        ranges.add(start, start + DataInputOutputUtil.readINT(in));
+      }
+      return ranges;
+    }
+  }
+}
@@ -0,0 +1,78 @@
+package com.github.artsiomch.jdcr;
+
+import com.github.artsiomch.jdcr.utils.RangeBuffer;
+import com.intellij.openapi.editor.colors.TextAttributesKey;
+import com.intellij.psi.javadoc.PsiDocComment;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Immutable result of {@link JdcrDocCommentAnalyzer} for one {@link PsiDocComment}: HTML tags, tag
+ * values, escaped chars, multiline tags and inline JavaDoc tag borders, ready to be folded by
+ * {@link JdcrFoldingBuilder} and highlighted by {@link JdcrAnnotator}.
+ *
+ * <p>All ranges are <b>relative</b> to the comment start, packed into {@link RangeBuffer}s: {@code
+ * TextRange}s are made only by the folding builder and annotator.
+ */
+class JdcrDocCommentModel {
+
+  @NotNull private final RangeBuffer foldRanges;
+  @NotNull private final String[] placeholderTexts;
+  private final int uncoalescedFoldCount;
+  @NotNull private final RangeBuffer highlightRanges;
+  @NotNull private final TextAttributesKey[] textAttributesKeys;
+  private final int uncoalescedHighlightCount;
+
+  JdcrDocCommentModel(
+      @NotNull RangeBuffer foldRanges,
+      @NotNull String[] placeholderTexts,
+      int uncoalescedFoldCount,
+      @NotNull RangeBuffer highlightRanges,
+      @NotNull TextAttributesKey[] textAttributesKeys,
+      int uncoalescedHighlightCount) {
+    this.foldRanges = foldRanges;
+    this.placeholderTexts = placeholderTexts;
+    this.uncoalescedFoldCount = uncoalescedFoldCount;
+    this.highlightRanges = highlightRanges;
+    this.textAttributesKeys = textAttributesKeys;
+    this.uncoalescedHighlightCount = uncoalescedHighlightCount;
+  }
+
+  /**
+   * Folds sorted by start, sequential regions (or separated by spaces only) are already joined.
+   * Must not be modified.
+   */
+  @NotNull
+  RangeBuffer getFoldRanges() {
+    return foldRanges;
+  }
+
+  @NotNull
+  String getPlaceholderText(int foldIndex) {
+    return placeholderTexts[foldIndex];
+  }
+
+  /** @return amount of folds found before joining, see {@link #getFoldRanges()} */
+  int getUncoalescedFoldCount() {
+    return uncoalescedFoldCount;
+  }
+
+  /**
+   * Highlights of the whole comment sorted by start, annotated at once by {@link JdcrAnnotator}.
+   * Duplicates are dropped, touching ones with the same attributes are joined. Must not be
+   * modified.
+   */
+  @NotNull
+  RangeBuffer getHighlightRanges() {
+    return highlightRanges;
+  }
+
+  @NotNull
+  TextAttributesKey getTextAttributesKey(int highlightIndex) {
+    return textAttributesKeys[highlightIndex];
+  }
+
+  /** @return amount of highlights found before joining, see {@link #getHighlightRanges()} */
+  int getUncoalescedHighlightCount() {
+    return uncoalescedHighlightCount;
+  }
+}
@@ -0,0 +1,170 @@
+package com.github.artsiomch.jdcr;
+
+import com.intellij.openapi.components.ServiceManager;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.psi.javadoc.PsiDocComment;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Application level LRU cache of {@link JdcrDocCommentModel}s by the comment text and fingerprint
+ * of the {@link JdcrTagCatalog} the model is made with. Identical comments (license headers,
+ * generated code, copied notes) are analysed only once for all files: model ranges are relative to
+ * the comment start, so they fit any copy of the comment.
+ *
+ * <p>Size is bounded by approximate memory taken by the cached texts and models. Lookups are made
+ * by the comment chars and their hash, the text is copied to a {@link String} only for a new entry.
+ */
+public class JdcrDocCommentModelCache {
+
+  private static final long MAX_SIZE_IN_BYTES = 8 * 1024 * 1024;
+  // Approximate footprint of cache entry, packed range with its placeholder/key and String chars.
+  private static final int ENTRY_BYTES = 128;
+  private static final int RANGE_BYTES = 16;
+  private static final int CHAR_BYTES = 2;
+
+  private final Map<TextKey, JdcrDocCommentModel> models = new LinkedHashMap<>(16, 0.75f, true);
+  private long sizeInBytes = 0;
+
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+
+  /**
+   * Comment text with its hash and the catalog fingerprint: stored keys hold a {@link String},
+   * lookup keys the node chars. Models of the old catalog put after its change are never found.
+   */
+  private static final class TextKey {
+    @NotNull private final CharSequence text;
+    private final int catalogFingerprint;
+    private final int hash;
+
+    private TextKey(@NotNull CharSequence text, int catalogFingerprint) {
+      this.text = text;
+      this.catalogFingerprint = catalogFingerprint;
+      this.hash = 31 * StringUtil.stringHashCode(text) + catalogFingerprint;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) return true;
+      if (!(o instanceof TextKey)) return false;
+      TextKey other = (TextKey) o;
+      return hash == other.hash
+          && catalogFingerprint == other.catalogFingerprint
+          && StringUtil.equals(text, other.text);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+  }
+
+  @NotNull
+  static JdcrDocCommentModelCache getInstance() {
+    return ServiceManager.getService(JdcrDocCommentModelCache.class);
+  }
+
+  /**
+   * @param text text of {@link PsiDocComment}, not copied
+   * @param catalogFingerprint {@link JdcrTagCatalog.Compiled#getFingerprint()} of current catalog
+   * @return model of the comment with the same text if cached, counted as hit/miss.
+   */
+  @Nullable
+  JdcrDocCommentModel get(@NotNull CharSequence text, int catalogFingerprint) {
+    TextKey key = new TextKey(text, catalogFingerprint);
+    JdcrDocCommentModel model;
+    synchronized (models) {
+      model = models.get(key);
+    }
+    (model != null ? hits : misses).incrementAndGet();
+    return model;
+  }
+
+  /** @return {@code true} if model for the comment {@code text} is cached, not counted as hit. */
+  boolean contains(@NotNull CharSequence text, int catalogFingerprint) {
+    TextKey key = new TextKey(text, catalogFingerprint);
+    synchronized (models) {
+      return models.containsKey(key);
+    }
+  }
+
+  /**
+   * @param text text of {@link PsiDocComment}, copied to the cache
+   * @param catalogFingerprint {@link JdcrTagCatalog.Compiled#getFingerprint()} of the catalog the
+   *     model is made with
+   */
+  void put(
+      @NotNull CharSequence text, int catalogFingerprint, @NotNull JdcrDocCommentModel model) {
+    long entrySize = getSizeInBytes(text, model);
+    if (entrySize > MAX_SIZE_IN_BYTES) return;
+    TextKey key = new TextKey(text.toString(), catalogFingerprint);
+    synchronized (models) {
+      JdcrDocCommentModel previous = models.put(key, model);
+      if (previous != null) sizeInBytes -= getSizeInBytes(text, previous);
+      sizeInBytes += entrySize;
+      Iterator<Map.Entry<TextKey, JdcrDocCommentModel>> eldest = models.entrySet().iterator();
+      while (sizeInBytes > MAX_SIZE_IN_BYTES && eldest.hasNext()) {
+        Map.Entry<TextKey, JdcrDocCommentModel> entry = eldest.next();
+        sizeInBytes -= getSizeInBytes(entry.getKey().text, entry.getValue());
+        eldest.remove();
+      }
+    }
+  }
+
+  private static long getSizeInBytes(
+      @NotNull CharSequence text, @NotNull JdcrDocCommentModel model) {
+    return ENTRY_BYTES
+        + (long) text.length() * CHAR_BYTES
+        + (long) (model.getFoldRanges().size() + model.getHighlightRanges().size()) * RANGE_BYTES;
+  }
+
+  long getHits() {
+    return hits.get();
+  }
+
+  long getMisses() {
+    return misses.get();
+  }
+
+  int getSize() {
+    synchronized (models) {
+      return models.size();
+    }
+  }
+
+  long getSizeInBytes() {
+    synchronized (models) {
+      return sizeInBytes;
+    }
+  }
+
+  void resetStatistics() {
+    hits.set(0);
+    misses.set(0);
+  }
+
+  void clear() {
+    synchronized (models) {
+      models.clear();
+      sizeInBytes = 0;
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "JdcrDocCommentModelCache{hits="
+        + getHits()
+        + ", misses="
+        + getMisses()
+        + ", size="
+        + getSize()
+        + ", bytes="
+        + getSizeInBytes()
+        + '}';
+  }
+}
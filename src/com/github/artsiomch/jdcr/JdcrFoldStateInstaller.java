@@ -0,0 +1,19 @@
+package com.github.artsiomch.jdcr;
+
+import com.github.artsiomch.jdcr.utils.FoldStateIndex;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.project.DumbAware;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.startup.StartupActivity;
+import org.jetbrains.annotations.NotNull;
+
+/** Installs {@link FoldStateIndex} to editors of the opened project on EDT. */
+public class JdcrFoldStateInstaller implements StartupActivity, DumbAware {
+
+  @Override
+  public void runActivity(@NotNull Project project) {
+    if (!CheckLicense.enabled) return;
+    ApplicationManager.getApplication()
+        .invokeLater(() -> FoldStateIndex.install(project), project.getDisposed());
+  }
+}
@@ -1,156 +1,184 @@
 package com.github.artsiomch.jdcr;
 
+import com.github.artsiomch.jdcr.utils.FoldStateIndex;
 import com.github.artsiomch.jdcr.utils.JdcrPsiTreeUtils;
-import com.github.artsiomch.jdcr.utils.JdcrStringUtils;
+import com.github.artsiomch.jdcr.utils.RangeBuffer;
+import com.intellij.codeInsight.folding.CodeFoldingManager;
+import com.intellij.concurrency.JobLauncher;
 import com.intellij.lang.ASTNode;
-import com.intellij.lang.folding.FoldingBuilder;
+import com.intellij.lang.folding.FoldingBuilderEx;
 import com.intellij.lang.folding.FoldingDescriptor;
 import com.intellij.lang.folding.NamedFoldingDescriptor;
 import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.editor.Editor;
+import com.intellij.openapi.editor.FoldRegion;
 import com.intellij.openapi.editor.FoldingGroup;
+import com.intellij.openapi.editor.FoldingModel;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.project.DumbAware;
+import com.intellij.openapi.project.Project;
 import com.intellij.openapi.util.TextRange;
+import com.intellij.openapi.util.registry.Registry;
 import com.intellij.psi.PsiElement;
-import com.intellij.psi.impl.source.tree.JavaDocElementType;
 import com.intellij.psi.javadoc.PsiDocComment;
-import com.intellij.psi.javadoc.PsiDocToken;
-import com.intellij.psi.javadoc.PsiInlineDocTag;
-import com.intellij.psi.util.PsiTreeUtil;
-import java.util.ArrayDeque;
-import java.util.Arrays;
-import java.util.Deque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
-import org.jsoup.parser.Parser;
 
-public class JdcrFoldingBuilder implements FoldingBuilder {
-
-  private Deque<FoldingDescriptor> foldingDescriptors;
-  private FoldingGroup foldingGroup;
-  private static final int LENGTH_DOC_INLINE_TAG_END = 1; // }
+/**
+ * Uses only PSI of JavaDoc comments, so works in dumb mode. Both passes analyse new comments within
+ * {@link WorkBudget}: a small one for the quick pass (on file opening), so usual files are folded
+ * in full at once. The rest of comments get only single token folds, their multiline tags and link
+ * labels are folded by the following passes. Stateless: comments of huge files are analysed
+ * concurrently.
+ */
+public class JdcrFoldingBuilder extends FoldingBuilderEx implements DumbAware {
+
+  static final String PARALLEL_THRESHOLD_KEY = "jdcr.parallel.folding.comments.threshold";
+  private static final int DEFAULT_PARALLEL_THRESHOLD = 500;
   private static final FoldingDescriptor[] EMPTY_ARRAY = {};
 
   @NotNull
   @Override
-  public FoldingDescriptor[] buildFoldRegions(@NotNull ASTNode node, @NotNull Document document) {
+  public FoldingDescriptor[] buildFoldRegions(
+      @NotNull PsiElement root, @NotNull Document document, boolean quick) {
     if (!CheckLicense.enabled) return EMPTY_ARRAY;
-    PsiElement root = node.getPsi();
-    foldingDescriptors = new ArrayDeque<>();
-
-    //    long startTime= System.currentTimeMillis();
-    for (PsiDocComment psiDocComment : PsiTreeUtil.findChildrenOfType(root, PsiDocComment.class)) {
-      foldingGroup = FoldingGroup.newGroup("JDCR fold: " + psiDocComment.getTextRange().toString());
-
-      PsiTreeUtil.findChildrenOfType(psiDocComment, PsiDocToken.class).stream()
-          .filter(JdcrPsiTreeUtils::isNotInsideCodeOrLiteralTag)
-          .forEach(this::checkHtmlTagsAndEscapedChars);
-
-      PsiTreeUtil.findChildrenOfType(psiDocComment, PsiInlineDocTag.class).stream()
-          .filter(JdcrPsiTreeUtils::isCompleteJavaDocTag)
-          .forEach(this::checkInlineJavaDocTags);
+    long startTime = System.nanoTime();
+    List<PsiDocComment> comments = new ArrayList<>();
+    JdcrPsiTreeUtils.visitDocComments(root, comments::add);
+    JdcrDocCommentModel[] models = getModels(comments, quick);
+
+    // merged in the comments order, so descriptors are sorted by offset as by a sequential walk
+    List<FoldingDescriptor> foldingDescriptors = new ArrayList<>();
+    int uncoalescedFoldCount = 0;
+    for (int i = 0; i < models.length; i++) {
+      addFoldingDescriptors(comments.get(i), models[i], foldingDescriptors);
+      uncoalescedFoldCount += models[i].getUncoalescedFoldCount();
     }
-    /*
-        System.out.printf("File: %-20s  Folding time: %6d,  Total folds created: %6d\n",
-            root.getContainingFile().getName(),
-            (System.currentTimeMillis() - startTime),
-            foldingDescriptors.capacity());
-    */
+    JdcrMetrics.getInstance()
+        .recordFolding(
+            root,
+            System.nanoTime() - startTime,
+            uncoalescedFoldCount,
+            foldingDescriptors.size(),
+            quick);
     return foldingDescriptors.toArray(new FoldingDescriptor[0]);
   }
 
   /**
-   * Add FoldingDescriptors for inline JavaDoc tags: {@link JdcrStringUtils#CODE_TAGS} {@link
-   * JdcrStringUtils#LINK_TAGS}
+   * @return models of {@code comments} in the same order. Computed concurrently by {@link
+   *     JobLauncher} workers (holding read action of the caller) if amount of comments reaches
+   *     {@value #PARALLEL_THRESHOLD_KEY} registry value. Whole comment is analysed once and
+   *     shared with JdcrAnnotator.
    */
-  private void checkInlineJavaDocTags(@NotNull PsiInlineDocTag psiInlineDocTag) {
-    String tagName = psiInlineDocTag.getName();
-    if (JdcrStringUtils.CODE_TAGS.contains(tagName)) {
-      foldJavaDocTagStartEnd(psiInlineDocTag);
-    } else if (JdcrStringUtils.LINK_TAGS.contains(tagName)) {
-      foldJavaDocTagStartEnd(psiInlineDocTag);
-
-      // Folding label part of @link tag
-      Arrays.stream(psiInlineDocTag.getChildren())
-          .filter(
-              child ->
-                  // link through # within current file
-                  (child.getNode().getElementType() == JavaDocElementType.DOC_METHOD_OR_FIELD_REF
-                          // link to outer file
-                          || child.getNode().getElementType()
-                              == JavaDocElementType.DOC_REFERENCE_HOLDER)
-                      // @link tag has text label part to fold
-                      && child.getNextSibling() != psiInlineDocTag.getLastChild())
-          .findFirst()
-          .map(
-              linkToShow ->
-                  new TextRange(
-                      linkToShow.getTextRange().getEndOffset()
-                          - psiInlineDocTag.getTextRange().getStartOffset(),
-                      psiInlineDocTag.getTextLength() - LENGTH_DOC_INLINE_TAG_END))
-          .ifPresent(
-              labelToFold ->
-                  JdcrPsiTreeUtils.excludeLineBreaks(psiInlineDocTag, labelToFold)
-                      .forEach(range -> addFoldingDescriptor(psiInlineDocTag, range)));
+  @NotNull
+  private static JdcrDocCommentModel[] getModels(
+      @NotNull List<PsiDocComment> comments, boolean quick) {
+    WorkBudget budget = quick ? WorkBudget.forQuickPass() : WorkBudget.forPass();
+    JdcrDocCommentModel[] models = new JdcrDocCommentModel[comments.size()];
+    if (comments.size() < Registry.intValue(PARALLEL_THRESHOLD_KEY, DEFAULT_PARALLEL_THRESHOLD)) {
+      for (int i = 0; i < models.length; i++) {
+        models[i] = JdcrDocCommentAnalyzer.getModel(comments.get(i), budget);
+      }
+    } else {
+      List<Integer> indexes = new ArrayList<>(models.length);
+      for (int i = 0; i < models.length; i++) {
+        indexes.add(i);
+      }
+      JobLauncher.getInstance()
+          .invokeConcurrentlyUnderProgress(
+              indexes,
+              ProgressManager.getInstance().getProgressIndicator(),
+              i -> {
+                models[i] = JdcrDocCommentAnalyzer.getModel(comments.get(i), budget);
+                return true;
+              });
     }
+    return models;
   }
 
-  /** Use only for <b>complete</b> DocTag */
-  private void foldJavaDocTagStartEnd(@NotNull PsiInlineDocTag psiInlineDocTag) {
-    // fold JavaDoc tag Start
-    int tagStartLength = 2 /* `{@` */ + psiInlineDocTag.getName().length(); // `code`, `link` ...
-    if (tagStartLength != psiInlineDocTag.getLastChild().getStartOffsetInParent()) {
-      tagStartLength += 1; /* include space after tag name if any*/
+  private static void addFoldingDescriptors(
+      @NotNull PsiDocComment psiDocComment,
+      @NotNull JdcrDocCommentModel model,
+      @NotNull List<FoldingDescriptor> foldingDescriptors) {
+    FoldingGroup foldingGroup =
+        FoldingGroup.newGroup(
+            FoldStateIndex.GROUP_PREFIX + psiDocComment.getTextRange().toString());
+    // sequential regions are already joined by the analyzer: <i><b>...
+    RangeBuffer foldRanges = model.getFoldRanges();
+    int commentStart = psiDocComment.getTextRange().getStartOffset();
+    for (int i = 0; i < foldRanges.size(); i++) {
+      TextRange absoluteRange =
+          new TextRange(foldRanges.getStart(i) + commentStart, foldRanges.getEnd(i) + commentStart);
+      foldingDescriptors.add(
+          new NamedFoldingDescriptor(
+              getFoldedNode(psiDocComment, foldRanges.getStart(i)),
+              absoluteRange,
+              foldingGroup,
+              model.getPlaceholderText(i)));
     }
-    JdcrPsiTreeUtils.excludeLineBreaks(psiInlineDocTag, new TextRange(0, tagStartLength))
-        .forEach(range -> addFoldingDescriptor(psiInlineDocTag, range));
-    // fold JavaDoc tag End: `}`
-    addFoldingDescriptor(psiInlineDocTag.getLastChild(), new TextRange(0, 1));
   }
 
-  /** Add FoldingDescriptors for HTML tags and Escaped Chars */
-  private void checkHtmlTagsAndEscapedChars(@NotNull PsiDocToken psiDocToken) {
-    String docTokenText = psiDocToken.getText();
-    for (TextRange range : JdcrStringUtils.getHtmlTags(docTokenText)) {
-      String tagsToFold = range.substring(docTokenText).toLowerCase();
-      if (tagsToFold.contains("<li>")) {
-        addFoldingDescriptor(psiDocToken, range, " - ");
-        //              } else if (tagsToFold.contains("<td>")) {
-        //                addFoldingDescriptor(psiDocToken, textRange, "\t");
-      } else {
-        addFoldingDescriptor(psiDocToken, range);
+  /**
+   * @return leaf the fold starts at. Not the comment node: the platform keeps one folding builder
+   *     per node, so JDCR folds must not share it with the Java fold of the whole comment.
+   */
+  @NotNull
+  private static ASTNode getFoldedNode(@NotNull PsiDocComment psiDocComment, int foldStart) {
+    PsiElement leaf = psiDocComment.findElementAt(foldStart);
+    return leaf != null ? leaf.getNode() : psiDocComment.getNode();
+  }
+
+  /**
+   * Update folding of {@code editor} after the comments analysed over {@link WorkBudget} got full
+   * models (see {@link OverBudgetCompletion}). The platform adds new folds of a comment expanded,
+   * so they get the state of the comment here: collapsed, as {@link #isCollapsedByDefault} makes
+   * them on opening, if all its folds are collapsed and the caret is outside. Expanded comments
+   * stay expanded. Done in one EDT event, so the user can't change the folding in between. EDT
+   * only.
+   */
+  static void updateFoldRegions(@NotNull Project project, @NotNull Editor editor) {
+    FoldingModel foldingModel = editor.getFoldingModel();
+    Set<FoldRegion> oldRegions = new HashSet<>();
+    Map<String, Boolean> collapsedComments = new HashMap<>();
+    for (FoldRegion region : foldingModel.getAllFoldRegions()) {
+      if (isCommentRegion(region)) {
+        oldRegions.add(region);
+        collapsedComments.merge(
+            region.getGroup().toString(), !region.isExpanded(), Boolean::logicalAnd);
       }
     }
-    // Check for Multi-line tag.
-    JdcrPsiTreeUtils.getMultiLineTagRangesInParent(psiDocToken)
-        .forEach(textRange -> addFoldingDescriptor(psiDocToken.getParent(), textRange));
-
-    for (TextRange textRange : JdcrStringUtils.getHtmlEscapedChars(docTokenText)) {
-      addFoldingDescriptor(
-          psiDocToken, textRange, Parser.unescapeEntities(textRange.substring(docTokenText), true));
+    CodeFoldingManager.getInstance(project).updateFoldRegions(editor);
+
+    int caretOffset = editor.getCaretModel().getOffset();
+    List<FoldRegion> newRegions = new ArrayList<>();
+    for (FoldRegion region : foldingModel.getAllFoldRegions()) {
+      if (isCommentRegion(region)
+          && region.isExpanded()
+          && !oldRegions.contains(region)
+          && collapsedComments.getOrDefault(region.getGroup().toString(), false)
+          && (caretOffset <= region.getStartOffset() || caretOffset >= region.getEndOffset())) {
+        newRegions.add(region);
+      }
     }
-  }
-
-  private void addFoldingDescriptor(@NotNull PsiElement element, @NotNull TextRange range) {
-    addFoldingDescriptor(element, range, ""); // "◊"
-  }
-
-  private void addFoldingDescriptor(
-      @NotNull PsiElement element, @NotNull TextRange range, String placeholderText) {
-
-    // reducing folding regions amount by joint sequential regions into one: <i><b>...
-    TextRange absoluteNewRange = range.shiftRight(element.getTextRange().getStartOffset());
-    if (!foldingDescriptors.isEmpty()
-        && foldingDescriptors.peek().getRange().getEndOffset()
-            == absoluteNewRange.getStartOffset()) {
-      FoldingDescriptor prevFoldingDescriptor = foldingDescriptors.pop();
-      absoluteNewRange =
-          new TextRange(
-              prevFoldingDescriptor.getRange().getStartOffset(), absoluteNewRange.getEndOffset());
-      placeholderText = prevFoldingDescriptor.getPlaceholderText() + placeholderText;
+    if (!newRegions.isEmpty()) {
+      foldingModel.runBatchFoldingOperation(
+          () -> {
+            for (FoldRegion region : newRegions) {
+              region.setExpanded(false);
+            }
+          });
     }
+  }
 
-    foldingDescriptors.push(
-        new NamedFoldingDescriptor(
-            element.getNode(), absoluteNewRange, foldingGroup, placeholderText));
+  private static boolean isCommentRegion(@NotNull FoldRegion region) {
+    FoldingGroup group = region.getGroup();
+    return group != null && group.toString().startsWith(FoldStateIndex.GROUP_PREFIX);
   }
 
   @Nullable
@@ -0,0 +1,251 @@
+package com.github.artsiomch.jdcr;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.components.ServiceManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import java.util.Arrays;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Application level metrics of folding and annotating: time and amount of regions per file/comment,
+ * model cache hit rate and the slowest files seen. Recording is lock-free (except for the rare new
+ * slowest file), so it's always on. Report is written to {@code idea.log} periodically (if anything
+ * happened since last time) and could be viewed by {@link JdcrShowMetricsAction}.
+ */
+public class JdcrMetrics implements Disposable {
+
+  private static final Logger LOG = Logger.getInstance(JdcrMetrics.class);
+  private static final long LOG_PERIOD_MINUTES = 30;
+  private static final int SLOWEST_FILES_COUNT = 5;
+  private static final long NANOS_IN_MS = 1_000_000;
+
+  /** Lock-free histogram of durations with power of 2 microseconds buckets. */
+  static class Histogram {
+    // bucket 0: < 1 µs, bucket b: [2^(b-1), 2^b) µs, last bucket: everything longer
+    private static final int BUCKETS = 25;
+
+    private final LongAdder[] buckets = new LongAdder[BUCKETS];
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Long::max, 0);
+
+    Histogram() {
+      Arrays.setAll(buckets, i -> new LongAdder());
+    }
+
+    void record(long nanos) {
+      long micros = nanos / 1_000;
+      buckets[Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros))].increment();
+      count.increment();
+      totalNanos.add(nanos);
+      maxNanos.accumulate(nanos);
+    }
+
+    long getCount() {
+      return count.sum();
+    }
+
+    long getTotalNanos() {
+      return totalNanos.sum();
+    }
+
+    long getMaxNanos() {
+      return maxNanos.get();
+    }
+
+    /** @return upper bound (in µs) of the bucket containing {@code percentile} of records */
+    long getPercentileMicros(double percentile) {
+      long total = getCount();
+      long threshold = (long) Math.ceil(total * percentile);
+      long sum = 0;
+      for (int b = 0; b < BUCKETS - 1; b++) {
+        sum += buckets[b].sum();
+        if (sum >= threshold) return 1L << b;
+      }
+      return getMaxNanos() / 1_000;
+    }
+
+    void reset() {
+      for (LongAdder bucket : buckets) bucket.reset();
+      count.reset();
+      totalNanos.reset();
+      maxNanos.reset();
+    }
+
+    @Override
+    public String toString() {
+      long count = getCount();
+      if (count == 0) return "none";
+      return String.format(
+          "%d, total %d ms, avg %.3f ms, p50 < %.3f ms, p99 < %.3f ms, max %.3f ms",
+          count,
+          getTotalNanos() / NANOS_IN_MS,
+          getTotalNanos() / (double) count / NANOS_IN_MS,
+          getPercentileMicros(0.5) / 1_000.0,
+          getPercentileMicros(0.99) / 1_000.0,
+          getMaxNanos() / (double) NANOS_IN_MS);
+    }
+  }
+
+  private final Histogram quickFoldings = new Histogram();
+  private final Histogram foldings = new Histogram();
+  private final LongAdder uncoalescedFoldRegions = new LongAdder();
+  private final LongAdder foldRegions = new LongAdder();
+  private final Histogram annotatedComments = new Histogram();
+  private final LongAdder uncoalescedAnnotations = new LongAdder();
+  private final LongAdder annotations = new LongAdder();
+  private final LongAdder overBudgetComments = new LongAdder();
+  private final Histogram prewarmedFiles = new Histogram();
+  private final LongAdder prewarmedComments = new LongAdder();
+
+  // Sorted by time descending. Guarded by itself, checked against slowestFileThreshold first.
+  private final String[] slowestFiles = new String[SLOWEST_FILES_COUNT];
+  private final long[] slowestFileNanos = new long[SLOWEST_FILES_COUNT];
+  private volatile long slowestFileThreshold = 0;
+
+  private final ScheduledFuture<?> logging;
+  private long loggedEvents = 0;
+
+  public JdcrMetrics() {
+    logging =
+        AppExecutorUtil.getAppScheduledExecutorService()
+            .scheduleWithFixedDelay(
+                this::logReport, LOG_PERIOD_MINUTES, LOG_PERIOD_MINUTES, TimeUnit.MINUTES);
+  }
+
+  @NotNull
+  static JdcrMetrics getInstance() {
+    return ServiceManager.getService(JdcrMetrics.class);
+  }
+
+  /**
+   * @param root element folding was built for (file)
+   * @param nanos duration of folding
+   * @param uncoalescedRegions amount of folds found before joining of sequential ones
+   * @param regions amount of built folding regions
+   * @param quick is it the quick pass (on file opening)
+   */
+  void recordFolding(
+      @NotNull PsiElement root, long nanos, int uncoalescedRegions, int regions, boolean quick) {
+    (quick ? quickFoldings : foldings).record(nanos);
+    uncoalescedFoldRegions.add(uncoalescedRegions);
+    foldRegions.add(regions);
+    if (nanos > slowestFileThreshold) {
+      PsiFile file = root.getContainingFile();
+      addSlowestFile(file == null ? root.toString() : file.getName(), nanos);
+    }
+  }
+
+  /**
+   * @param nanos duration of annotating one JavaDoc comment
+   * @param uncoalescedCount amount of highlights found before joining of touching ones
+   * @param count amount of created annotations
+   */
+  void recordAnnotating(long nanos, int uncoalescedCount, int count) {
+    annotatedComments.record(nanos);
+    uncoalescedAnnotations.add(uncoalescedCount);
+    annotations.add(count);
+  }
+
+  /** Comment got the cheap analysis as {@link WorkBudget} of the pass is exhausted. */
+  void recordOverBudget() {
+    overBudgetComments.increment();
+  }
+
+  /**
+   * @param nanos duration of background analysis of one file by {@link JdcrPrewarmer}
+   * @param comments amount of analysed comments
+   */
+  void recordPrewarming(long nanos, int comments) {
+    prewarmedFiles.record(nanos);
+    prewarmedComments.add(comments);
+  }
+
+  private void addSlowestFile(@NotNull String fileName, long nanos) {
+    synchronized (slowestFiles) {
+      int i = SLOWEST_FILES_COUNT - 1;
+      if (nanos <= slowestFileNanos[i]) return;
+      for (; i > 0 && slowestFileNanos[i - 1] < nanos; i--) {
+        slowestFiles[i] = slowestFiles[i - 1];
+        slowestFileNanos[i] = slowestFileNanos[i - 1];
+      }
+      slowestFiles[i] = fileName;
+      slowestFileNanos[i] = nanos;
+      slowestFileThreshold = slowestFileNanos[SLOWEST_FILES_COUNT - 1];
+    }
+  }
+
+  @NotNull
+  String getReport() {
+    JdcrDocCommentModelCache cache = JdcrDocCommentModelCache.getInstance();
+    long hits = cache.getHits();
+    long requests = hits + cache.getMisses();
+    StringBuilder report = new StringBuilder("JavaDoc Clean Read metrics:");
+    report.append("\n  quick foldings: ").append(quickFoldings);
+    report.append("\n  foldings: ").append(foldings);
+    report.append("\n  fold regions: ").append(foldRegions.sum());
+    report.append(" (").append(uncoalescedFoldRegions.sum()).append(" before coalescing)");
+    report.append("\n  annotated comments: ").append(annotatedComments);
+    report.append("\n  annotations: ").append(annotations.sum());
+    report.append(" (").append(uncoalescedAnnotations.sum()).append(" before coalescing)");
+    report.append("\n  comments over work budget: ").append(overBudgetComments.sum());
+    report.append("\n  prewarmed files: ").append(prewarmedFiles);
+    report.append("\n  prewarmed comments: ").append(prewarmedComments.sum());
+    report.append("\n  model cache: ").append(cache);
+    if (requests > 0) {
+      report.append(String.format(", hit rate %.1f%%", hits * 100.0 / requests));
+    }
+    report.append("\n  slowest files:");
+    synchronized (slowestFiles) {
+      for (int i = 0; i < SLOWEST_FILES_COUNT && slowestFiles[i] != null; i++) {
+        report.append(
+            String.format(
+                "\n    %.3f ms %s", slowestFileNanos[i] / (double) NANOS_IN_MS, slowestFiles[i]));
+      }
+    }
+    return report.toString();
+  }
+
+  /** Resets all metrics including model cache hits/misses (not the cache itself). */
+  void reset() {
+    JdcrDocCommentModelCache.getInstance().resetStatistics();
+    quickFoldings.reset();
+    foldings.reset();
+    uncoalescedFoldRegions.reset();
+    foldRegions.reset();
+    annotatedComments.reset();
+    uncoalescedAnnotations.reset();
+    annotations.reset();
+    overBudgetComments.reset();
+    prewarmedFiles.reset();
+    prewarmedComments.reset();
+    synchronized (slowestFiles) {
+      Arrays.fill(slowestFiles, null);
+      Arrays.fill(slowestFileNanos, 0);
+      slowestFileThreshold = 0;
+    }
+  }
+
+  synchronized void logReport() {
+    long events =
+        quickFoldings.getCount()
+            + foldings.getCount()
+            + annotatedComments.getCount()
+            + prewarmedFiles.getCount();
+    if (events == loggedEvents) return;
+    loggedEvents = events;
+    LOG.info(getReport());
+  }
+
+  @Override
+  public void dispose() {
+    logging.cancel(false);
+  }
+}
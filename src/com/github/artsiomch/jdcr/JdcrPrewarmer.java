@@ -0,0 +1,84 @@
+package com.github.artsiomch.jdcr;
+
+import com.github.artsiomch.jdcr.utils.JdcrPsiTreeUtils;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.fileEditor.FileEditorManager;
+import com.intellij.openapi.fileEditor.impl.EditorHistoryManager;
+import com.intellij.openapi.project.DumbAware;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.startup.StartupActivity;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiJavaFile;
+import com.intellij.psi.PsiManager;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Analyses JavaDoc comments of open and recently opened files in background after the project
+ * opening, so their models are already cached (see {@link JdcrDocCommentAnalyzer}) when the files
+ * are shown: folding and highlighting don't pay for the analysis on tab switch.
+ *
+ * <p>Each file is analysed in its own non-blocking read action on a single thread executor: it's
+ * cancelled by any write action and restarted after it, and expires with the project.
+ */
+public class JdcrPrewarmer implements StartupActivity, DumbAware {
+
+  private static final int RECENT_FILES_LIMIT = 20;
+  private static final Executor EXECUTOR =
+      AppExecutorUtil.createBoundedApplicationPoolExecutor("JavaDoc Clean Read Prewarmer", 1);
+
+  @Override
+  public void runActivity(@NotNull Project project) {
+    if (!CheckLicense.enabled) return;
+    for (VirtualFile file : getFilesToPrewarm(project)) {
+      ReadAction.nonBlocking(() -> prewarm(project, file))
+          .expireWhen(project::isDisposed)
+          .submit(EXECUTOR);
+    }
+  }
+
+  /** @return open files followed by the most recently opened ones */
+  @NotNull
+  private static Set<VirtualFile> getFilesToPrewarm(@NotNull Project project) {
+    Set<VirtualFile> files = new LinkedHashSet<>();
+    for (VirtualFile file : FileEditorManager.getInstance(project).getOpenFiles()) {
+      files.add(file);
+    }
+    // history is ordered from the oldest to the most recent
+    VirtualFile[] history = EditorHistoryManager.getInstance(project).getFiles();
+    for (int i = history.length - 1; i >= 0 && i >= history.length - RECENT_FILES_LIMIT; i--) {
+      files.add(history[i]);
+    }
+    return files;
+  }
+
+  private static void prewarm(@NotNull Project project, @NotNull VirtualFile file) {
+    if (!file.isValid()) return;
+    PsiFile psiFile = PsiManager.getInstance(project).findFile(file);
+    if (psiFile instanceof PsiJavaFile) {
+      prewarm(psiFile);
+    }
+  }
+
+  /**
+   * Analyse all JavaDoc comments of {@code psiFile} in full. Requires read access.
+   *
+   * @return amount of analysed comments
+   */
+  static int prewarm(@NotNull PsiFile psiFile) {
+    long startTime = System.nanoTime();
+    int[] comments = {0};
+    JdcrPsiTreeUtils.visitDocComments(
+        psiFile,
+        psiDocComment -> {
+          JdcrDocCommentAnalyzer.getModel(psiDocComment);
+          comments[0]++;
+        });
+    JdcrMetrics.getInstance().recordPrewarming(System.nanoTime() - startTime, comments[0]);
+    return comments[0];
+  }
+}
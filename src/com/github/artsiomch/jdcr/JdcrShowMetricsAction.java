@@ -0,0 +1,31 @@
+package com.github.artsiomch.jdcr;
+
+import com.intellij.openapi.actionSystem.AnAction;
+import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.intellij.openapi.project.DumbAware;
+import com.intellij.openapi.ui.Messages;
+import org.jetbrains.annotations.NotNull;
+
+/** Internal action: shows {@link JdcrMetrics} report (also written to idea.log), could reset it. */
+public class JdcrShowMetricsAction extends AnAction implements DumbAware {
+
+  private static final String[] OPTIONS = {"Close", "Reset"};
+  private static final int RESET = 1;
+
+  @Override
+  public void actionPerformed(@NotNull AnActionEvent e) {
+    JdcrMetrics metrics = JdcrMetrics.getInstance();
+    metrics.logReport();
+    int option =
+        Messages.showDialog(
+            e.getProject(),
+            metrics.getReport(),
+            "JavaDoc Clean Read Metrics",
+            OPTIONS,
+            0,
+            Messages.getInformationIcon());
+    if (option == RESET) {
+      metrics.reset();
+    }
+  }
+}
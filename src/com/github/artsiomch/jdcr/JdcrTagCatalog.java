@@ -0,0 +1,248 @@
+package com.github.artsiomch.jdcr;
+
+import com.github.artsiomch.jdcr.utils.Tag;
+import com.github.artsiomch.jdcr.utils.TagValueResolver;
+import com.intellij.codeInsight.daemon.DaemonCodeAnalyzer;
+import com.intellij.openapi.components.PersistentStateComponent;
+import com.intellij.openapi.components.ServiceManager;
+import com.intellij.openapi.components.Storage;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.editor.colors.TextAttributesKey;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.project.ProjectManager;
+import com.intellij.openapi.util.ModificationTracker;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * HTML tags whose values are highlighted: built-in ones plus custom tags from the settings (see
+ * {@link JdcrTagCatalogConfigurable}). Compiled into a single {@link TagValueResolver}: every found
+ * HTML tag is classified by one case-insensitive lookup of its name, whatever the amount of tags.
+ * Compiled again only when the settings change, all models are re-analysed then.
+ */
+@com.intellij.openapi.components.State(name = "JdcrTagCatalog", storages = @Storage("jdcr.xml"))
+public class JdcrTagCatalog
+    implements PersistentStateComponent<JdcrTagCatalog.State>, ModificationTracker {
+
+  private static final Logger LOG = Logger.getInstance(JdcrTagCatalog.class);
+
+  private static final Map<Tag, TextAttributesKey> BUILT_IN_TAGS = new LinkedHashMap<>();
+
+  static {
+    // Font style HTML tags
+    BUILT_IN_TAGS.put(new Tag("<b>", "</b>"), JdcrColorSettingsPage.BOLD_FONT);
+    BUILT_IN_TAGS.put(new Tag("<i>", "</i>"), JdcrColorSettingsPage.ITALIC_FONT);
+    BUILT_IN_TAGS.put(new Tag("<em>", "</em>"), JdcrColorSettingsPage.ITALIC_FONT);
+    // Code HTML tags
+    BUILT_IN_TAGS.put(new Tag("<code>", "</code>"), JdcrColorSettingsPage.CODE_TAG);
+    BUILT_IN_TAGS.put(new Tag("<tt>", "</tt>"), JdcrColorSettingsPage.CODE_TAG);
+    BUILT_IN_TAGS.put(new Tag("<pre>", "</pre>"), JdcrColorSettingsPage.CODE_TAG);
+    // HTML link <a href=...> tags
+    BUILT_IN_TAGS.put(new Tag("<a href=", "</a>"), JdcrColorSettingsPage.HTML_LINK_TAG);
+    // <a name=...> tags
+    BUILT_IN_TAGS.put(new Tag("<a name=", "</a>"), JdcrColorSettingsPage.BOLD_FONT);
+  }
+
+  private static final List<CustomTag> DEFAULT_CUSTOM_TAGS =
+      Collections.unmodifiableList(
+          Arrays.asList(
+              new CustomTag("<strong>", Style.BOLD),
+              new CustomTag("<var>", Style.ITALIC),
+              new CustomTag("<kbd>", Style.CODE),
+              new CustomTag("<samp>", Style.CODE)));
+
+  /** Text attributes custom tag values could be highlighted with. */
+  public enum Style {
+    BOLD("Bold", JdcrColorSettingsPage.BOLD_FONT),
+    ITALIC("Italic", JdcrColorSettingsPage.ITALIC_FONT),
+    CODE("Code", JdcrColorSettingsPage.CODE_TAG),
+    HTML_LINK("Html link", JdcrColorSettingsPage.HTML_LINK_TAG);
+
+    @NotNull private final String displayName;
+    @NotNull private final TextAttributesKey textAttributesKey;
+
+    Style(@NotNull String displayName, @NotNull TextAttributesKey textAttributesKey) {
+      this.displayName = displayName;
+      this.textAttributesKey = textAttributesKey;
+    }
+
+    @Override
+    public String toString() {
+      return displayName;
+    }
+  }
+
+  /** Custom tag, e.g. {@code <strong>} or {@code <span class=}, stored in the settings. */
+  public static class CustomTag {
+    public String openTag = "";
+    public Style style = Style.BOLD;
+
+    @SuppressWarnings("unused") // for serialization
+    public CustomTag() {}
+
+    public CustomTag(@NotNull String openTag, @NotNull Style style) {
+      this.openTag = openTag;
+      this.style = style;
+    }
+
+    @NotNull
+    CustomTag copy() {
+      return new CustomTag(openTag, style);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) return true;
+      if (!(o instanceof CustomTag)) return false;
+      CustomTag other = (CustomTag) o;
+      return Objects.equals(openTag, other.openTag) && style == other.style;
+    }
+
+    @Override
+    public int hashCode() {
+      // stable between runs, used as fingerprint of the catalog models are cached with
+      return Objects.hash(openTag, style == null ? null : style.name());
+    }
+  }
+
+  public static class State {
+    public List<CustomTag> customTags = copy(DEFAULT_CUSTOM_TAGS);
+  }
+
+  /** Catalog ready for matching, immutable. */
+  static class Compiled {
+    /** Built-in and default custom tags, the catalog library sources are indexed with. */
+    static final Compiled DEFAULT = new Compiled(DEFAULT_CUSTOM_TAGS);
+
+    @NotNull private final Map<Tag, TextAttributesKey> tagAttributes;
+    @NotNull private final TagValueResolver resolver;
+    private final int fingerprint;
+
+    private Compiled(@NotNull List<CustomTag> customTags) {
+      tagAttributes = new LinkedHashMap<>(BUILT_IN_TAGS);
+      for (CustomTag customTag : customTags) {
+        try {
+          Tag tag = new Tag(customTag.openTag);
+          if (isBuiltIn(tag)) {
+            LOG.warn("Custom tag clashing with built-in one skipped: " + customTag.openTag);
+            continue;
+          }
+          tagAttributes.put(tag, customTag.style.textAttributesKey);
+        } catch (IllegalArgumentException | NullPointerException e) {
+          LOG.warn("Custom tag skipped: " + customTag.openTag, e);
+        }
+      }
+      resolver = new TagValueResolver(tagAttributes.keySet().toArray(new Tag[0]));
+      fingerprint = customTags.hashCode();
+    }
+
+    @NotNull
+    TagValueResolver getResolver() {
+      return resolver;
+    }
+
+    @NotNull
+    TextAttributesKey getTextAttributesKey(@NotNull Tag tag) {
+      return tagAttributes.get(tag);
+    }
+
+    /** @return hash of the custom tags, same between IDE runs for the same settings */
+    int getFingerprint() {
+      return fingerprint;
+    }
+
+    /** @return {@code true} if it is {@link #DEFAULT}: custom tags are not changed in settings */
+    boolean isDefault() {
+      return this == DEFAULT;
+    }
+  }
+
+  /**
+   * @return {@code true} if open tags of {@code tag} are open tags of a built-in tag too, e.g.
+   *     {@code <b class=} or {@code <a>}
+   */
+  static boolean isBuiltIn(@NotNull Tag tag) {
+    for (Tag builtInTag : BUILT_IN_TAGS.keySet()) {
+      if (builtInTag.getName().equals(tag.getName())
+          && (builtInTag.getAttribute() == null
+              || tag.getAttribute() == null
+              || builtInTag.getAttribute().equals(tag.getAttribute()))) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @NotNull private State state = new State();
+  @NotNull private volatile Compiled compiled = compile(state.customTags);
+  private volatile long modificationCount = 0;
+
+  @NotNull
+  static JdcrTagCatalog getInstance() {
+    return ServiceManager.getService(JdcrTagCatalog.class);
+  }
+
+  @NotNull
+  Compiled getCompiled() {
+    return compiled;
+  }
+
+  @NotNull
+  List<CustomTag> getCustomTags() {
+    return copy(state.customTags);
+  }
+
+  /** Change the catalog from the settings. */
+  void setCustomTags(@NotNull List<CustomTag> customTags) {
+    if (customTags.equals(state.customTags)) return;
+    State newState = new State();
+    newState.customTags = copy(customTags);
+    loadState(newState);
+  }
+
+  @NotNull
+  @Override
+  public State getState() {
+    return state;
+  }
+
+  @Override
+  public void loadState(@NotNull State state) {
+    if (state.customTags.equals(this.state.customTags)) return;
+    this.state = state;
+    compiled = compile(state.customTags);
+    modificationCount++;
+    // models of the old catalog
+    JdcrDocCommentModelCache.getInstance().clear();
+    for (Project project : ProjectManager.getInstance().getOpenProjects()) {
+      DaemonCodeAnalyzer.getInstance(project).restart();
+    }
+  }
+
+  /** Changed with the catalog, PSI cached models depend on it. */
+  @Override
+  public long getModificationCount() {
+    return modificationCount;
+  }
+
+  /** Default tags are compiled once, to {@link Compiled#DEFAULT}. */
+  @NotNull
+  private static Compiled compile(@NotNull List<CustomTag> customTags) {
+    return customTags.equals(DEFAULT_CUSTOM_TAGS) ? Compiled.DEFAULT : new Compiled(customTags);
+  }
+
+  @NotNull
+  private static List<CustomTag> copy(@NotNull List<CustomTag> customTags) {
+    List<CustomTag> result = new ArrayList<>(customTags.size());
+    for (CustomTag customTag : customTags) {
+      result.add(customTag.copy());
+    }
+    return result;
+  }
+}
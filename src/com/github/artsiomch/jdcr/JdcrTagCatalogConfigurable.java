@@ -0,0 +1,140 @@
+package com.github.artsiomch.jdcr;
+
+import com.github.artsiomch.jdcr.JdcrTagCatalog.CustomTag;
+import com.github.artsiomch.jdcr.JdcrTagCatalog.Style;
+import com.github.artsiomch.jdcr.utils.Tag;
+import com.intellij.openapi.options.ConfigurationException;
+import com.intellij.openapi.options.SearchableConfigurable;
+import com.intellij.openapi.ui.ComboBoxTableRenderer;
+import com.intellij.ui.ToolbarDecorator;
+import com.intellij.ui.table.TableView;
+import com.intellij.util.ui.ColumnInfo;
+import com.intellij.util.ui.ListTableModel;
+import java.util.HashSet;
+import java.util.Set;
+import javax.swing.JComponent;
+import javax.swing.table.TableCellEditor;
+import javax.swing.table.TableCellRenderer;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/** Settings -> Editor -> JavaDoc Clean Read: custom HTML tags of {@link JdcrTagCatalog}. */
+public class JdcrTagCatalogConfigurable implements SearchableConfigurable {
+
+  private final ColumnInfo<CustomTag, String> openTagColumn =
+      new ColumnInfo<CustomTag, String>("Open tag, e.g. <strong> or <span class=") {
+        @Nullable
+        @Override
+        public String valueOf(CustomTag customTag) {
+          return customTag.openTag;
+        }
+
+        @Override
+        public void setValue(CustomTag customTag, String value) {
+          customTag.openTag = value.trim();
+        }
+
+        @Override
+        public boolean isCellEditable(CustomTag customTag) {
+          return true;
+        }
+      };
+
+  private final ColumnInfo<CustomTag, Style> styleColumn =
+      new ColumnInfo<CustomTag, Style>("Tag value style") {
+        private final ComboBoxTableRenderer<Style> renderer =
+            new ComboBoxTableRenderer<>(Style.values());
+
+        @Nullable
+        @Override
+        public Style valueOf(CustomTag customTag) {
+          return customTag.style;
+        }
+
+        @Override
+        public void setValue(CustomTag customTag, Style value) {
+          customTag.style = value;
+        }
+
+        @Override
+        public boolean isCellEditable(CustomTag customTag) {
+          return true;
+        }
+
+        @Override
+        public TableCellRenderer getRenderer(CustomTag customTag) {
+          return renderer;
+        }
+
+        @Override
+        public TableCellEditor getEditor(CustomTag customTag) {
+          return renderer;
+        }
+      };
+
+  private ListTableModel<CustomTag> model;
+
+  @NotNull
+  @Override
+  public String getId() {
+    return "jdcr.tags";
+  }
+
+  @Override
+  public String getDisplayName() {
+    return "JavaDoc Clean Read";
+  }
+
+  @Nullable
+  @Override
+  public JComponent createComponent() {
+    model = new ListTableModel<>(openTagColumn, styleColumn);
+    TableView<CustomTag> table = new TableView<>(model);
+    reset();
+    return ToolbarDecorator.createDecorator(table)
+        .setAddAction(
+            button -> {
+              model.addRow(new CustomTag("<cite>", Style.ITALIC));
+              int row = model.getRowCount() - 1;
+              table.getSelectionModel().setSelectionInterval(row, row);
+              table.editCellAt(row, 0);
+            })
+        .disableUpDownActions()
+        .createPanel();
+  }
+
+  @Override
+  public boolean isModified() {
+    return !model.getItems().equals(JdcrTagCatalog.getInstance().getCustomTags());
+  }
+
+  @Override
+  public void apply() throws ConfigurationException {
+    Set<String> openTags = new HashSet<>();
+    for (CustomTag customTag : model.getItems()) {
+      Tag tag;
+      try {
+        tag = new Tag(customTag.openTag);
+      } catch (IllegalArgumentException e) {
+        throw new ConfigurationException("Not an open HTML tag: " + customTag.openTag);
+      }
+      if (JdcrTagCatalog.isBuiltIn(tag)) {
+        throw new ConfigurationException("Tag is highlighted by default: " + customTag.openTag);
+      }
+      if (!openTags.add(tag.getName() + ' ' + tag.getAttribute())) {
+        throw new ConfigurationException("Duplicated tag: " + customTag.openTag);
+      }
+    }
+    JdcrTagCatalog.getInstance().setCustomTags(model.getItems());
+  }
+
+  @Override
+  public void reset() {
+    model.setItems(JdcrTagCatalog.getInstance().getCustomTags());
+  }
+
+  @Override
+  public void disposeUIResources() {
+    model = null;
+  }
+}
@@ -0,0 +1,70 @@
+package com.github.artsiomch.jdcr;
+
+import com.github.artsiomch.jdcr.utils.JdcrPsiTreeUtils;
+import com.intellij.codeInsight.daemon.DaemonCodeAnalyzer;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.editor.Editor;
+import com.intellij.openapi.editor.EditorFactory;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Key;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiDocumentManager;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiJavaFile;
+import com.intellij.psi.PsiManager;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import java.util.concurrent.Executor;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Analyses the comments of a file left over {@link WorkBudget} in background, then updates its
+ * folding (see {@link JdcrFoldingBuilder#updateFoldRegions}) and restarts its highlighting: the
+ * file gets full models without waiting for the next modification.
+ *
+ * <p>The analysis runs in a non-blocking read action on a single thread executor: it's cancelled by
+ * any write action and restarted after it, and expires with the project.
+ */
+final class OverBudgetCompletion {
+
+  private static final Executor EXECUTOR =
+      AppExecutorUtil.createBoundedApplicationPoolExecutor("JavaDoc Clean Read Completion", 1);
+  private static final Key<Boolean> SCHEDULED = Key.create("JDCR completion scheduled");
+
+  private OverBudgetCompletion() {}
+
+  /** Schedule completion of {@code psiFile}, once till it starts. */
+  static void schedule(@NotNull PsiFile psiFile) {
+    VirtualFile file = psiFile.getVirtualFile();
+    if (file == null || !psiFile.isPhysical()) return;
+    synchronized (SCHEDULED) {
+      if (psiFile.getUserData(SCHEDULED) != null) return;
+      psiFile.putUserData(SCHEDULED, Boolean.TRUE);
+    }
+    Project project = psiFile.getProject();
+    ReadAction.nonBlocking(() -> complete(project, file))
+        .expireWhen(project::isDisposed)
+        .submit(EXECUTOR);
+  }
+
+  private static void complete(@NotNull Project project, @NotNull VirtualFile file) {
+    if (!file.isValid()) return;
+    PsiFile psiFile = PsiManager.getInstance(project).findFile(file);
+    if (!(psiFile instanceof PsiJavaFile)) return;
+    psiFile.putUserData(SCHEDULED, null);
+    JdcrPsiTreeUtils.visitDocComments(psiFile, JdcrDocCommentAnalyzer::getModel);
+    ApplicationManager.getApplication()
+        .invokeLater(
+            () -> {
+              if (!psiFile.isValid()) return;
+              Document document = PsiDocumentManager.getInstance(project).getDocument(psiFile);
+              if (document == null) return;
+              for (Editor editor : EditorFactory.getInstance().getEditors(document, project)) {
+                JdcrFoldingBuilder.updateFoldRegions(project, editor);
+              }
+              DaemonCodeAnalyzer.getInstance(project).restart(psiFile);
+            },
+            project.getDisposed());
+  }
+}
@@ -0,0 +1,81 @@
+package com.github.artsiomch.jdcr;
+
+import com.intellij.lang.annotation.AnnotationSession;
+import com.intellij.openapi.util.Key;
+import com.intellij.openapi.util.registry.Registry;
+import com.intellij.psi.javadoc.PsiDocComment;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Amount of JavaDoc chars to be analysed in full during one folding or highlighting pass of a file.
+ * Only comments not analysed before (not found in caches) are charged. Comments met after the
+ * budget is exhausted get the cheap single token analysis, so the pass time on a huge file stays
+ * bounded. Then the rest of the file is analysed in background and its folding and highlighting
+ * are updated (see {@link OverBudgetCompletion}); the quick folding pass leaves it to
+ * the following full pass.
+ *
+ * <p>Configured by {@value #CHARS_PER_PASS_KEY} registry key, the smaller budget of the quick
+ * folding pass (on file opening) by {@value #QUICK_CHARS_PER_PASS_KEY}.
+ */
+class WorkBudget {
+
+  static final String CHARS_PER_PASS_KEY = "jdcr.full.analysis.chars.per.pass";
+  private static final int DEFAULT_CHARS_PER_PASS = 200_000;
+  static final String QUICK_CHARS_PER_PASS_KEY = "jdcr.quick.analysis.chars.per.pass";
+  private static final int DEFAULT_QUICK_CHARS_PER_PASS = 20_000;
+  private static final Key<WorkBudget> SESSION_BUDGET = Key.create("JDCR work budget");
+
+  private final AtomicInteger remainingChars;
+  private final boolean scheduleCompletion;
+  private final AtomicBoolean exceeded = new AtomicBoolean();
+
+  private WorkBudget(int chars, boolean scheduleCompletion) {
+    this.remainingChars = new AtomicInteger(chars);
+    this.scheduleCompletion = scheduleCompletion;
+  }
+
+  /** @return new budget for one pass */
+  @NotNull
+  static WorkBudget forPass() {
+    return new WorkBudget(Registry.intValue(CHARS_PER_PASS_KEY, DEFAULT_CHARS_PER_PASS), true);
+  }
+
+  /** @return new budget for one quick folding pass */
+  @NotNull
+  static WorkBudget forQuickPass() {
+    return new WorkBudget(
+        Registry.intValue(QUICK_CHARS_PER_PASS_KEY, DEFAULT_QUICK_CHARS_PER_PASS), false);
+  }
+
+  /** @return budget shared by all annotator calls of the highlighting pass */
+  @NotNull
+  static WorkBudget forSession(@NotNull AnnotationSession session) {
+    WorkBudget budget = session.getUserData(SESSION_BUDGET);
+    if (budget == null) {
+      budget = session.putUserDataIfAbsent(SESSION_BUDGET, forPass());
+    }
+    return budget;
+  }
+
+  /**
+   * @param chars length of the comment to analyse in full
+   * @return {@code false} if the budget is already exhausted. The comment crossing the budget is
+   *     still analysed in full.
+   */
+  boolean tryConsume(int chars) {
+    return remainingChars.get() > 0 && remainingChars.getAndAdd(-chars) > 0;
+  }
+
+  /**
+   * Record {@code psiDocComment} got the cheap analysis. On the first call schedules the full
+   * analysis of its file, unless it's the budget of the quick pass.
+   */
+  void exceeded(@NotNull PsiDocComment psiDocComment) {
+    JdcrMetrics.getInstance().recordOverBudget();
+    if (scheduleCompletion && exceeded.compareAndSet(false, true)) {
+      OverBudgetCompletion.schedule(psiDocComment.getContainingFile());
+    }
+  }
+}
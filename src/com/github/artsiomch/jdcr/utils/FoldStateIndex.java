@@ -0,0 +1,142 @@
+package com.github.artsiomch.jdcr.utils;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.editor.Editor;
+import com.intellij.openapi.editor.EditorFactory;
+import com.intellij.openapi.editor.FoldRegion;
+import com.intellij.openapi.editor.FoldingGroup;
+import com.intellij.openapi.editor.event.EditorFactoryEvent;
+import com.intellij.openapi.editor.event.EditorFactoryListener;
+import com.intellij.openapi.editor.ex.FoldingListener;
+import com.intellij.openapi.editor.ex.FoldingModelEx;
+import com.intellij.openapi.editor.ex.util.EditorUtil;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Key;
+import com.intellij.openapi.util.TextRange;
+import com.intellij.util.ThreeState;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Per-editor index of JDCR folding groups: one group per JavaDoc comment, named with {@link
+ * #GROUP_PREFIX}. Keeps the first fold region of each group sorted by offset, so fold state of a
+ * comment is a binary search instead of a scan of all fold regions of all editors.
+ *
+ * <p>Installed to editors on EDT when they are created (see {@link #install(Project)}), the same
+ * as its folding model listener. Rebuilt by the listener after each batch folding update: regions
+ * are added and removed only inside of it, and the platform has no events for them. The rebuild is
+ * a walk over the regions list the update itself has just walked, once per update instead of once
+ * per {@link #isCollapsed} query from each annotated element. Offsets and expanded state are read
+ * from the live regions, so they are current between updates.
+ */
+public class FoldStateIndex implements FoldingListener {
+
+  /** Prefix of {@link FoldingGroup} names made for JavaDoc comments. */
+  public static final String GROUP_PREFIX = "JDCR fold: ";
+
+  private static final Key<FoldStateIndex> KEY = Key.create("JDCR fold state index");
+
+  @NotNull private final Editor editor;
+  // First region of each JDCR group, sorted by start offset.
+  @NotNull private volatile FoldRegion[] groupRegions;
+
+  private FoldStateIndex(@NotNull Editor editor) {
+    this.editor = editor;
+    this.groupRegions = collectGroupRegions(editor);
+  }
+
+  /** Install indexes to editors of {@code project}: open ones and ones opened later. EDT only. */
+  public static void install(@NotNull Project project) {
+    EditorFactory editorFactory = EditorFactory.getInstance();
+    editorFactory.addEditorFactoryListener(
+        new EditorFactoryListener() {
+          @Override
+          public void editorCreated(@NotNull EditorFactoryEvent event) {
+            if (event.getEditor().getProject() == project) install(event.getEditor());
+          }
+
+          @Override
+          public void editorReleased(@NotNull EditorFactoryEvent event) {
+            // subscription is disposed with the editor
+          }
+        },
+        project);
+    for (Editor editor : editorFactory.getAllEditors()) {
+      if (editor.getProject() == project) install(editor);
+    }
+  }
+
+  /** Install index to {@code editor} and subscribe it to the folding model. EDT only. */
+  public static void install(@NotNull Editor editor) {
+    ApplicationManager.getApplication().assertIsDispatchThread();
+    if (editor.getUserData(KEY) != null) return;
+    FoldStateIndex index = new FoldStateIndex(editor);
+    Disposable subscription = () -> {};
+    EditorUtil.disposeWithEditor(editor, subscription);
+    ((FoldingModelEx) editor.getFoldingModel()).addListener(index, subscription);
+    editor.putUserData(KEY, index);
+  }
+
+  /**
+   * @param commentRange text range of the JavaDoc comment
+   * @return {@link ThreeState#YES} if JDCR folds of the comment are collapsed in {@code editor},
+   *     {@link ThreeState#NO} if expanded, {@link ThreeState#UNSURE} if the comment has no JDCR
+   *     folds. Regions of editors without installed index are walked.
+   */
+  @NotNull
+  public static ThreeState isCollapsed(@NotNull Editor editor, @NotNull TextRange commentRange) {
+    FoldStateIndex index = editor.getUserData(KEY);
+    return isCollapsed(
+        index != null ? index.groupRegions : collectGroupRegions(editor), commentRange);
+  }
+
+  @NotNull
+  private static ThreeState isCollapsed(
+      @NotNull FoldRegion[] regions, @NotNull TextRange commentRange) {
+    // first group starting inside the comment
+    int low = 0;
+    int high = regions.length;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (regions[middle].getStartOffset() < commentRange.getStartOffset()) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    if (low == regions.length) return ThreeState.UNSURE;
+    FoldRegion region = regions[low];
+    if (!region.isValid() || region.getStartOffset() >= commentRange.getEndOffset()) {
+      return ThreeState.UNSURE;
+    }
+    return region.isExpanded() ? ThreeState.NO : ThreeState.YES;
+  }
+
+  @Override
+  public void onFoldRegionStateChange(@NotNull FoldRegion region) {
+    // expanded state is read from the region itself
+  }
+
+  @Override
+  public void onFoldProcessingEnd() {
+    groupRegions = collectGroupRegions(editor);
+  }
+
+  @NotNull
+  private static FoldRegion[] collectGroupRegions(@NotNull Editor editor) {
+    List<FoldRegion> result = new ArrayList<>();
+    Set<FoldingGroup> groups = new HashSet<>();
+    // sorted by start offset
+    for (FoldRegion region : editor.getFoldingModel().getAllFoldRegions()) {
+      FoldingGroup group = region.getGroup();
+      if (group != null && group.toString().startsWith(GROUP_PREFIX) && groups.add(group)) {
+        result.add(region);
+      }
+    }
+    return result.toArray(new FoldRegion[0]);
+  }
+}
@@ -0,0 +1,136 @@
+package com.github.artsiomch.jdcr.utils;
+
+import com.intellij.openapi.util.TextRange;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Hand-written state machine for HTML markup inside JavaDoc text. Walks the text once and collects
+ * all markup at the same time: complete tags, incomplete tag start/end, escaped chars and comments.
+ *
+ * <p>Rules are the same as for the regexps used before:
+ *
+ * <ul>
+ *   <li>tag: {@code <} (but not {@code <!--}), at least one char except {@code <>}, {@code >} (but
+ *       not {@code -->});
+ *   <li>incomplete tag start: tag without {@code >} till the end of the text;
+ *   <li>incomplete tag end: tag without {@code <} from the beginning of the text;
+ *   <li>escaped char: {@code &}, optional {@code #}, at least one ASCII letter or digit, {@code ;}.
+ * </ul>
+ *
+ * Text inside {@code <!-- -->} is not interpreted as markup.
+ */
+public class HtmlLexer {
+
+  private static final int NONE = -1;
+
+  @NotNull
+  public static HtmlMarkup lex(@NotNull CharSequence text) {
+    RangeBuffer tags = null;
+    RangeBuffer escapedChars = null;
+    RangeBuffer comments = null;
+    TextRange incompleteTagEnd = null;
+    int tagStart = NONE; // start of `<...` waiting for its `>`
+    boolean markupSeen = false; // any `<` or `>` met, so incomplete tag end is not possible
+    final int length = text.length();
+
+    int i = 0;
+    while (i < length) {
+      switch (text.charAt(i)) {
+        case '<':
+          markupSeen = true;
+          tagStart = NONE;
+          if (!isCommentStart(text, i)) {
+            tagStart = i;
+          } else {
+            int commentEnd = indexOfCommentEnd(text, i + 4 /* <!-- */);
+            if (commentEnd != NONE) {
+              if (comments == null) comments = new RangeBuffer();
+              comments.add(i, commentEnd);
+              i = commentEnd;
+              continue;
+            }
+          }
+          break;
+        case '>':
+          if (!isCommentEnd(text, i)) {
+            if (tagStart != NONE && tagStart + 1 < i) {
+              if (tags == null) tags = new RangeBuffer();
+              tags.add(tagStart, i + 1);
+            } else if (!markupSeen && i > 0) {
+              incompleteTagEnd = new TextRange(0, i + 1);
+            }
+          }
+          markupSeen = true;
+          tagStart = NONE;
+          break;
+        case '&':
+          int escapedCharEnd = getEscapedCharEnd(text, i);
+          if (escapedCharEnd != NONE) {
+            if (escapedChars == null) escapedChars = new RangeBuffer();
+            escapedChars.add(i, escapedCharEnd);
+            i = escapedCharEnd;
+            continue;
+          }
+          break;
+      }
+      i++;
+    }
+
+    TextRange incompleteTagStart =
+        (tagStart != NONE && tagStart + 1 < length) ? new TextRange(tagStart, length) : null;
+
+    if (tags == null
+        && escapedChars == null
+        && comments == null
+        && incompleteTagStart == null
+        && incompleteTagEnd == null) {
+      return HtmlMarkup.EMPTY;
+    }
+    return new HtmlMarkup(
+        orEmpty(tags),
+        orEmpty(escapedChars),
+        orEmpty(comments),
+        incompleteTagStart,
+        incompleteTagEnd);
+  }
+
+  @NotNull
+  private static RangeBuffer orEmpty(@Nullable RangeBuffer ranges) {
+    return ranges == null ? RangeBuffer.EMPTY : ranges;
+  }
+
+  private static boolean isCommentStart(@NotNull CharSequence text, int index) {
+    return index + 3 < text.length()
+        && text.charAt(index + 1) == '!'
+        && text.charAt(index + 2) == '-'
+        && text.charAt(index + 3) == '-';
+  }
+
+  private static boolean isCommentEnd(@NotNull CharSequence text, int index) {
+    return index >= 2 && text.charAt(index - 1) == '-' && text.charAt(index - 2) == '-';
+  }
+
+  /** @return offset right after {@code -->} or {@link #NONE} */
+  private static int indexOfCommentEnd(@NotNull CharSequence text, int from) {
+    for (int i = from + 2; i < text.length(); i++) {
+      if (text.charAt(i) == '>' && isCommentEnd(text, i)) return i + 1;
+    }
+    return NONE;
+  }
+
+  /**
+   * @return offset right after {@code ;} of escaped char started at {@code index} or {@link #NONE}
+   */
+  private static int getEscapedCharEnd(@NotNull CharSequence text, int index) {
+    int bodyStart = index + 1;
+    if (bodyStart < text.length() && text.charAt(bodyStart) == '#') bodyStart++;
+    int i = bodyStart;
+    while (i < text.length() && isAsciiLetterOrDigit(text.charAt(i))) i++;
+    return (i > bodyStart && i < text.length() && text.charAt(i) == ';') ? i + 1 : NONE;
+  }
+
+  private static boolean isAsciiLetterOrDigit(char c) {
+    return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9');
+  }
+}
@@ -0,0 +1,87 @@
+package com.github.artsiomch.jdcr.utils;
+
+import com.intellij.openapi.util.TextRange;
+import java.util.List;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * All HTML markup found by {@link HtmlLexer} in a single pass through the text. All ranges are
+ * relative to the lexed text.
+ */
+public class HtmlMarkup {
+
+  static final HtmlMarkup EMPTY =
+      new HtmlMarkup(RangeBuffer.EMPTY, RangeBuffer.EMPTY, RangeBuffer.EMPTY, null, null);
+
+  @NotNull private final RangeBuffer tags;
+  @NotNull private final RangeBuffer escapedChars;
+  @NotNull private final RangeBuffer comments;
+  @Nullable private final TextRange incompleteTagStart;
+  @Nullable private final TextRange incompleteTagEnd;
+
+  HtmlMarkup(
+      @NotNull RangeBuffer tags,
+      @NotNull RangeBuffer escapedChars,
+      @NotNull RangeBuffer comments,
+      @Nullable TextRange incompleteTagStart,
+      @Nullable TextRange incompleteTagEnd) {
+    this.tags = tags;
+    this.escapedChars = escapedChars;
+    this.comments = comments;
+    this.incompleteTagStart = incompleteTagStart;
+    this.incompleteTagEnd = incompleteTagEnd;
+  }
+
+  /** Complete HTML tags: {@code <tag ...>}. Must not be modified. */
+  @NotNull
+  public RangeBuffer getTagRanges() {
+    return tags;
+  }
+
+  /** HTML escaped chars (entities): {@code &amp;} {@code &#60;} ... Must not be modified. */
+  @NotNull
+  public RangeBuffer getEscapedCharRanges() {
+    return escapedChars;
+  }
+
+  /** Complete HTML comments: {@code <!-- ... -->}. Must not be modified. */
+  @NotNull
+  public RangeBuffer getCommentRanges() {
+    return comments;
+  }
+
+  /** see {@link #getTagRanges()} */
+  @NotNull
+  public List<TextRange> getTags() {
+    return tags.toTextRanges();
+  }
+
+  /** see {@link #getEscapedCharRanges()} */
+  @NotNull
+  public List<TextRange> getEscapedChars() {
+    return escapedChars.toTextRanges();
+  }
+
+  /** see {@link #getCommentRanges()} */
+  @NotNull
+  public List<TextRange> getComments() {
+    return comments.toTextRanges();
+  }
+
+  /** Lonely {@code <tag ...} till the end of the text, possible start of multiline tag. */
+  @Nullable
+  public TextRange getIncompleteTagStart() {
+    return incompleteTagStart;
+  }
+
+  /** Lonely {@code ...>} from the beginning of the text, possible end of multiline tag. */
+  @Nullable
+  public TextRange getIncompleteTagEnd() {
+    return incompleteTagEnd;
+  }
+
+  public boolean isEmpty() {
+    return this == EMPTY;
+  }
+}
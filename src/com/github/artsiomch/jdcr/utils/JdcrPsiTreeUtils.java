@@ -7,21 +7,20 @@ import static com.intellij.psi.JavaDocTokenType.DOC_TAG_NAME;
 import com.intellij.openapi.editor.Document;
 import com.intellij.openapi.editor.Editor;
 import com.intellij.openapi.editor.EditorFactory;
-import com.intellij.openapi.editor.FoldRegion;
-import com.intellij.openapi.editor.FoldingGroup;
+import com.intellij.openapi.progress.ProgressManager;
 import com.intellij.openapi.util.TextRange;
 import com.intellij.psi.JavaDocTokenType;
+import com.intellij.psi.PsiCodeBlock;
 import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiExpression;
 import com.intellij.psi.PsiFile;
-import com.intellij.psi.PsiWhiteSpace;
+import com.intellij.psi.PsiRecursiveElementWalkingVisitor;
 import com.intellij.psi.javadoc.*;
-import java.util.ArrayDeque;
+import com.intellij.util.ThreeState;
 import java.util.ArrayList;
-import java.util.Collection;
-import java.util.Collections;
-import java.util.Deque;
+import java.util.Arrays;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.function.Consumer;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
@@ -52,7 +51,7 @@ public class JdcrPsiTreeUtils {
   }
 
   @Nullable
-  private static PsiDocComment getRootDocComment(@NotNull PsiElement element) {
+  public static PsiDocComment getRootDocComment(@NotNull PsiElement element) {
     PsiElement parent = element.getParent();
     while (parent != null && !(parent instanceof PsiFile)) {
       if (parent instanceof PsiDocComment) return (PsiDocComment) parent;
@@ -61,142 +60,118 @@ public class JdcrPsiTreeUtils {
     return null;
   }
 
-  /** Check if {@code element} inside group of folded (collapsed) regions */
+  /**
+   * Check if JavaDoc comment of {@code element} is in clean read mode: its folds are not expanded
+   * in any editor of the document (see {@link FoldStateIndex}). Elements outside of JavaDoc are
+   * never folded.
+   */
   public static boolean isFolded(@NotNull PsiElement element) {
+    PsiDocComment docComment =
+        element instanceof PsiDocComment ? (PsiDocComment) element : getRootDocComment(element);
+    if (docComment == null) return false;
     Document document = element.getContainingFile().getViewProvider().getDocument();
     if (document == null)
       throw new java.lang.RuntimeException("Document for " + element.toString() + " is NULL.");
-    Editor[] editors = EditorFactory.getInstance().getEditors(document);
-    for (Editor editor : editors) {
-      for (FoldRegion foldRegion : editor.getFoldingModel().getAllFoldRegions()) {
-        FoldingGroup foldingGroup = foldRegion.getGroup();
-        PsiDocComment rootDocComment = getRootDocComment(element);
-        if (foldingGroup != null
-            && rootDocComment != null
-            && foldingGroup.toString().equals("JDCR " + rootDocComment.getTokenType().toString())) {
-          return !foldRegion.isExpanded();
-        }
+    TextRange commentRange = docComment.getTextRange();
+    for (Editor editor : EditorFactory.getInstance().getEditors(document)) {
+      if (FoldStateIndex.isCollapsed(editor, commentRange) == ThreeState.NO) {
+        return false;
       }
     }
     return true;
   }
 
   /**
-   * Look inside {@code range} in JavaDoc {@code element} for line breaks
+   * Look inside {@code [start, end)} in JavaDoc {@code element} for line breaks
    *
    * @param element javadoc PsiElement
-   * @param range inside <tt>element</tt> to check
-   * @return List of TextRanges <b>relative</b> to {@code element} between line breaks inside {@code
-   *     range}
+   * @param start start of range inside <tt>element</tt> to check
+   * @param end end of range inside <tt>element</tt> to check
+   * @param result to add ranges <b>relative</b> to {@code element} between line breaks to
    */
-  public static List<TextRange> excludeLineBreaks(
-      @NotNull PsiElement element, @NotNull TextRange range) {
-    List<TextRange> result = new ArrayList<>();
-    int prevLineBreak = range.getStartOffset();
-    // todo: fetch only children inside the range.
-    for (PsiElement child : element.getChildren()) {
-      if (range.intersectsStrict(getTextRangeInParent(child))) {
-        if (child instanceof PsiWhiteSpace
-            && child.getNextSibling() != null
-            && child.getNextSibling().getNode().getElementType()
-                == JavaDocTokenType.DOC_COMMENT_LEADING_ASTERISKS) {
-          // new line PsiWhiteSpace element found
-          PsiElement ws = child;
-          PsiElement la = ws.getNextSibling();
-          if (ws.getStartOffsetInParent() > prevLineBreak) {
-            result.add(new TextRange(prevLineBreak, ws.getStartOffsetInParent()));
-          }
-          prevLineBreak = la.getStartOffsetInParent() + la.getTextLength() /*length of '*'s */;
-        } else if (child instanceof PsiDocTag) {
-          // break nested elements
-          /*
-                    Deque<TextRange> subElementRanges =
-                        excludeLineBreaks(child, new TextRange(0, child.getTextLength())).stream()
-                            .map(nestedRange -> nestedRange.shiftRight(child.getStartOffsetInParent()))
-                            .collect(Collectors.toCollection(ArrayDeque::new));
-          */
-          final List<TextRange> nestedRanges =
-              excludeLineBreaks(child, new TextRange(0, child.getTextLength()));
-          Deque<TextRange> subElementRanges = new ArrayDeque<>(nestedRanges.size());
-          for (TextRange nestedRange : nestedRanges) {
-            subElementRanges.add(nestedRange.shiftRight(child.getStartOffsetInParent()));
-          }
-          if (!subElementRanges.isEmpty()) {
-            int subElementRangesStart = subElementRanges.getFirst().getStartOffset();
-            if (prevLineBreak < subElementRangesStart) { // ...<b>FOR_THAT_PART{@link test1}...
-              subElementRanges.addFirst(new TextRange(prevLineBreak, subElementRangesStart));
-            }
-            result.addAll(subElementRanges);
-            prevLineBreak = subElementRanges.getLast().getEndOffset();
-          }
-        }
-      }
-    }
-    if (prevLineBreak < range.getEndOffset()) {
-      result.add(new TextRange(prevLineBreak, range.getEndOffset()));
-    }
-    return removeLeadingSpace(element, result);
+  public static void excludeLineBreaks(
+      @NotNull PsiElement element, int start, int end, @NotNull RangeBuffer result) {
+    PsiElement root = element instanceof PsiDocComment ? element : getRootDocComment(element);
+    if (root == null) root = element;
+    int elementStartInRoot =
+        element.getTextRange().getStartOffset() - root.getTextRange().getStartOffset();
+    LineBreaksIndex.getInstance(root)
+        .excludeLineBreaks(
+            start + elementStartInRoot, end + elementStartInRoot, -elementStartInRoot, result);
   }
 
   // don't include ' ' at the begging of line (after leading asterisks) if any.
-  private static List<TextRange> removeLeadingSpace(
-      @NotNull PsiElement element, @NotNull Collection<TextRange> ranges) {
-    List<TextRange> result = new ArrayList<>(ranges.size());
-    for (TextRange range : ranges) {
-      if (range.substring(element.getText()).charAt(0) == ' '
-          && element.getText().charAt(range.getStartOffset() - 1) == '*') {
-        if (range.getLength() > 1) { // hack to avoid 0 length TextRange
-          result.add(new TextRange(range.getStartOffset() + 1, range.getEndOffset()));
+  private static RangeBuffer removeLeadingSpace(
+      @NotNull PsiElement element, @NotNull RangeBuffer ranges) {
+    CharSequence text = element.getNode().getChars();
+    int size = 0;
+    for (int i = 0; i < ranges.size(); i++) {
+      int start = ranges.getStart(i);
+      int end = ranges.getEnd(i);
+      if (text.charAt(start) == ' ' && text.charAt(start - 1) == '*') {
+        if (end - start > 1) { // hack to avoid 0 length TextRange
+          ranges.set(size++, start + 1, end);
         }
-      } else result.add(range);
+      } else ranges.set(size++, start, end);
     }
-    return result;
+    ranges.truncate(size);
+    return ranges;
   }
 
-  private static final List<TextRange> EMPTY_LIST = Collections.emptyList();
-
   /**
    * Check element for incomplete HTML Tag <b>end</b> (lonely `{@code >}`) and look behind for
    * incomplete HTML Tag <b>start</b> (lonely `{@code <}`) by parsing previous Siblings.
    *
    * @param element element to check
-   * @return {@link TextRange}s (<i>relatively</i> to {@code element.getParent()} element) of full
-   *     multiline HTML Tag, excluding service elements (leading asterisks, etc).
+   * @return ranges (<i>relatively</i> to {@code element.getParent()} element) of full multiline
+   *     HTML Tag, excluding service elements (leading asterisks, etc), or {@link
+   *     RangeBuffer#EMPTY}.
+   */
+  @NotNull
+  public static RangeBuffer getMultiLineTagRangesInParent(@NotNull PsiElement element) {
+    return getMultiLineTagRangesInParent(
+        element, JdcrStringUtils.getIncompleteHtmlTagEnd(element.getNode().getChars()));
+  }
+
+  /**
+   * see {@link #getMultiLineTagRangesInParent(PsiElement)}
+   *
+   * @param incompleteHtmlTagEnd pre-fetched incomplete HTML Tag <b>end</b> in {@code element}
    */
-  public static List<TextRange> getMultiLineTagRangesInParent(@NotNull PsiElement element) {
-    TextRange incompleteHtmlTagEnd = JdcrStringUtils.getIncompleteHtmlTagEnd(element.getText());
+  @NotNull
+  public static RangeBuffer getMultiLineTagRangesInParent(
+      @NotNull PsiElement element, @Nullable TextRange incompleteHtmlTagEnd) {
     if (incompleteHtmlTagEnd != null) {
-      Deque<TextRange> foundRangesInParent = new ArrayDeque<>();
-      foundRangesInParent.add(incompleteHtmlTagEnd.shiftRight(element.getStartOffsetInParent()));
+      // collected backward, from the tag end
+      RangeBuffer foundRangesInParent = new RangeBuffer();
+      int elementStart = element.getStartOffsetInParent();
+      foundRangesInParent.add(
+          incompleteHtmlTagEnd.getStartOffset() + elementStart,
+          incompleteHtmlTagEnd.getEndOffset() + elementStart);
 
       // Look behind for tag start.
       PsiElement prevSibling = element.getPrevSibling();
       while (prevSibling != null) {
+        ProgressManager.checkCanceled();
         if (prevSibling.getNode().getElementType() == JavaDocTokenType.DOC_COMMENT_DATA
             || prevSibling instanceof PsiInlineDocTag) {
+          int prevSiblingStart = prevSibling.getStartOffsetInParent();
           TextRange incompleteHtmlTagStart =
-              JdcrStringUtils.getIncompleteHtmlTagStart(prevSibling.getText());
+              JdcrStringUtils.getIncompleteHtmlTagStart(prevSibling.getNode().getChars());
           if (incompleteHtmlTagStart == null) {
-            foundRangesInParent.addFirst(getTextRangeInParent(prevSibling));
+            foundRangesInParent.add(
+                prevSiblingStart, prevSiblingStart + prevSibling.getTextLength());
           } else {
-            foundRangesInParent.addFirst(
-                incompleteHtmlTagStart.shiftRight(prevSibling.getStartOffsetInParent()));
-            return removeLeadingSpace(element.getParent(), foundRangesInParent);
+            foundRangesInParent.add(
+                incompleteHtmlTagStart.getStartOffset() + prevSiblingStart,
+                incompleteHtmlTagStart.getEndOffset() + prevSiblingStart);
+            return removeLeadingSpace(element.getParent(), foundRangesInParent.reverse());
           }
         }
         prevSibling = prevSibling.getPrevSibling();
       }
     }
-    return EMPTY_LIST;
-  }
-
-  /**
-   * @return text range of element relative to its parent
-   * @see PsiElement#getTextRangeInParent() - make it avaliable before 2018.3
-   */
-  @NotNull
-  private static TextRange getTextRangeInParent(@NotNull PsiElement element) {
-    return TextRange.from(element.getStartOffsetInParent(), element.getTextLength());
+    return RangeBuffer.EMPTY;
   }
 
   /**
@@ -229,4 +204,55 @@ public class JdcrPsiTreeUtils {
       doFindChildrenOfType(child, clazz, result);
     }
   }
+
+  /**
+   * Pass all {@link PsiDocComment}s inside {@code root} to {@code consumer}, including JavaDoc of
+   * local and anonymous classes. Code blocks and expressions are walked only if their text has
+   * {@code /**}: method bodies without classes inside are skipped. Checks cancellation.
+   */
+  public static void visitDocComments(
+      @NotNull PsiElement root, @NotNull Consumer<PsiDocComment> consumer) {
+    int[] docCommentStarts = findDocCommentStarts(root);
+    root.accept(
+        new PsiRecursiveElementWalkingVisitor() {
+          @Override
+          public void visitElement(PsiElement element) {
+            ProgressManager.checkCanceled();
+            if (element instanceof PsiDocComment) {
+              consumer.accept((PsiDocComment) element);
+            } else if (!(element instanceof PsiCodeBlock || element instanceof PsiExpression)
+                || containsOffset(docCommentStarts, element.getTextRange())) {
+              super.visitElement(element);
+            }
+          }
+        });
+  }
+
+  /**
+   * @return sorted offsets of all {@code /**} in the file text of {@code root}, including ones in
+   *     string literals and other comments.
+   */
+  @NotNull
+  private static int[] findDocCommentStarts(@NotNull PsiElement root) {
+    CharSequence text = root.getContainingFile().getViewProvider().getContents();
+    TextRange rootRange = root.getTextRange();
+    int[] starts = new int[8];
+    int size = 0;
+    int end = Math.min(rootRange.getEndOffset(), text.length()) - 2;
+    for (int i = rootRange.getStartOffset(); i < end; i++) {
+      if (text.charAt(i) == '/' && text.charAt(i + 1) == '*' && text.charAt(i + 2) == '*') {
+        if (size == starts.length) starts = Arrays.copyOf(starts, size * 2);
+        starts[size++] = i;
+      }
+    }
+    return Arrays.copyOf(starts, size);
+  }
+
+  private static boolean containsOffset(@NotNull int[] sortedOffsets, @NotNull TextRange range) {
+    int index = Arrays.binarySearch(sortedOffsets, range.getStartOffset());
+    if (index >= 0) return true;
+    int insertionPoint = -index - 1;
+    return insertionPoint < sortedOffsets.length
+        && sortedOffsets[insertionPoint] < range.getEndOffset();
+  }
 }
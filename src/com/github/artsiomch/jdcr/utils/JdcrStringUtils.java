@@ -9,22 +9,23 @@ import org.jetbrains.annotations.NotNull;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Stack;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 import org.jetbrains.annotations.Nullable;
 
 public class JdcrStringUtils {
   public static final Set<String> CODE_TAGS = new HashSet<>(Arrays.asList("code","literal"));
   public static final Set<String> LINK_TAGS = new HashSet<>(Arrays.asList("link","linkplain"));
 
-  private static final String T_START = "<(?!!--)"; // excluding Html comment beginning <!--
-  private static final String T_END = "(?<!--)>"; // excluding Html comment ending -->
-  private static final String T_BODY = "[^<>]+";
-  private static final Pattern HTML_TAG = Pattern.compile(T_START + T_BODY + T_END);
-  private static final Pattern HTML_INCOMPLETE_TAG_START = Pattern.compile(T_START + T_BODY);
-  private static final Pattern HTML_INCOMPLETE_TAG_END = Pattern.compile(T_BODY + T_END);
-  private static final Pattern HTML_ESC_CHAR = Pattern.compile("&#?[a-zA-Z0-9]+;");
+  /**
+   * Parse given text to find all HTML markup at once. Use it if more then one kind of markup needed
+   * for the same text.
+   *
+   * @param text given text
+   * @return all HTML markup found in text
+   */
+  @NotNull
+  public static HtmlMarkup getHtmlMarkup(@NotNull CharSequence text) {
+    return HtmlLexer.lex(text);
+  }
 
   /**
    * Parse given text to find HTML tags
@@ -33,8 +34,8 @@ public class JdcrStringUtils {
    * @return list of TextRange of HTML tags inside text
    */
   @NotNull
-  public static List<TextRange> getHtmlTags(String text) {
-    return getElementsInText(text, HTML_TAG);
+  public static List<TextRange> getHtmlTags(CharSequence text) {
+    return HtmlLexer.lex(text).getTags();
   }
 
   /**
@@ -44,12 +45,8 @@ public class JdcrStringUtils {
    * @return TextRange of incomplete HTML tag inside text
    */
   @Nullable
-  public static TextRange getIncompleteHtmlTagStart(String text) {
-    return getElementsInText(text, HTML_INCOMPLETE_TAG_START)
-        .stream()
-        .filter(range -> range.getEndOffset() == text.length())
-        .findAny()
-        .orElse(null);
+  public static TextRange getIncompleteHtmlTagStart(CharSequence text) {
+    return HtmlLexer.lex(text).getIncompleteTagStart();
   }
 
   /**
@@ -59,38 +56,8 @@ public class JdcrStringUtils {
    * @return TextRange of incomplete HTML tag inside text
    */
   @Nullable
-  public static TextRange getIncompleteHtmlTagEnd(@NotNull String text) {
-    // Pre-filtering. See http://www.fasterj.com/articles/regex2.shtml
-    // todo: Rid of regexp at all?
-    int tagEndIndex = text.indexOf('>');
-    if (tagEndIndex != -1) {
-      int tagStartIndex = text.indexOf('<');
-      if (tagStartIndex == -1 || tagStartIndex > tagEndIndex) {
-
-        return getElementsInText(text, HTML_INCOMPLETE_TAG_END)
-            .stream()
-            .filter(range -> range.getStartOffset() == 0)
-            .findAny()
-            .orElse(null);
-        //        return new TextRange(0, tagEndIndex);
-      }
-    }
-    return null;
-  }
-
-  @NotNull
-  private static List<TextRange> getCombinedElementsInText(String text, @NotNull Pattern pattern) {
-    Stack<TextRange> result = new Stack<>();
-    Matcher matcher = pattern.matcher(text);
-    int start;
-    while (matcher.find()) {
-      start =
-          (!(result.empty()) && result.peek().getEndOffset() == matcher.start())
-              ? result.pop().getStartOffset()
-              : matcher.start();
-      result.push(new TextRange(start, matcher.end()));
-    }
-    return result;
+  public static TextRange getIncompleteHtmlTagEnd(@NotNull CharSequence text) {
+    return HtmlLexer.lex(text).getIncompleteTagEnd();
   }
 
   /**
@@ -100,33 +67,10 @@ public class JdcrStringUtils {
    * @return list of TextRange of HTML escaped chars inside text
    */
   @NotNull
-  public static List<TextRange> getHtmlEscapedChars(String text) {
-    return getElementsInText(text, HTML_ESC_CHAR);
-  }
-
-  @NotNull
-  private static List<TextRange> getElementsInText(String text, @NotNull Pattern pattern) {
-    Matcher matcher = pattern.matcher(text);
-    if (matcher.find()) {
-      List<TextRange> result = new ArrayList<>();
-      do {
-        assert matcher.start() < matcher.end()
-            : "matcher.start()="
-                + matcher.start()
-                + " matcher.end()="
-                + matcher.end()
-                + "  text: "
-                + text
-                + "pattern: "
-                + matcher.pattern().pattern();
-        result.add(new TextRange(matcher.start(), matcher.end()));
-      } while (matcher.find());
-      return result;
-    }
-    return EMPTY_ARRAY;
+  public static List<TextRange> getHtmlEscapedChars(CharSequence text) {
+    return HtmlLexer.lex(text).getEscapedChars();
   }
 
-  private static final int EMPTY_INDEX = -2;
   private static final List<TextRange> EMPTY_ARRAY = Collections.emptyList();;
 
   /**
@@ -139,44 +83,28 @@ public class JdcrStringUtils {
    *     search in "upper" method for close/open tag in siblings).
    */
   @NotNull
-  public static List<TextRange> getValuesOfTag(@NotNull String text, @NotNull Tag tag) {
-    return getValuesOfTag(text, tag, getHtmlTags(text));
+  public static List<TextRange> getValuesOfTag(@NotNull CharSequence text, @NotNull Tag tag) {
+    return getRanges(tag.getResolver().resolve(text, getHtmlMarkup(text).getTagRanges()));
   }
 
   /**
-   * see {@link #getValuesOfTag(String, Tag)}
+   * see {@link #getValuesOfTag(CharSequence, Tag)}
    * @param foundHtmlTags pre-fetched ranges of html Tags in {@code text}
    */
   @NotNull
   public static List<TextRange> getValuesOfTag(
-      @NotNull String text, @NotNull Tag tag, @NotNull List<TextRange> foundHtmlTags) {
-    if (foundHtmlTags.isEmpty()) {
+      @NotNull CharSequence text, @NotNull Tag tag, @NotNull List<TextRange> foundHtmlTags) {
+    return getRanges(tag.getResolver().resolve(text, foundHtmlTags));
+  }
+
+  @NotNull
+  private static List<TextRange> getRanges(@NotNull List<TagValueResolver.TagValue> tagValues) {
+    if (tagValues.isEmpty()) {
       return EMPTY_ARRAY;
     }
-    List<TextRange> result = new ArrayList<>();
-    int start = EMPTY_INDEX, end = EMPTY_INDEX;
-    for (TextRange textRange : foundHtmlTags) {
-      if (tag.openIn(textRange.substring(text))) {
-        start = textRange.getEndOffset();
-      }
-      if (tag.closeIn(textRange.substring(text))) {
-        end = textRange.getStartOffset();
-      }
-      if (start != EMPTY_INDEX && end != EMPTY_INDEX && start < end) {
-        //        assert start <= end : "Start="+start+" End="+end+" at: "+element.getText();
-        result.add(new TextRange(start, end));
-        start = EMPTY_INDEX;
-        end = EMPTY_INDEX;
-      }
-      // possible end of multiline tag
-      if (end != EMPTY_INDEX && start == EMPTY_INDEX) {
-        result.add(new TextRange(0, end));
-        end = EMPTY_INDEX;
-      }
-    }
-    // possible start of multiline tag
-    if (start != EMPTY_INDEX && end == EMPTY_INDEX) {
-      result.add(new TextRange(start, text.length()));
+    List<TextRange> result = new ArrayList<>(tagValues.size());
+    for (TagValueResolver.TagValue tagValue : tagValues) {
+      result.add(tagValue.getRange());
     }
     return result;
   }
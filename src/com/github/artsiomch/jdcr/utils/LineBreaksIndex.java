@@ -0,0 +1,91 @@
+package com.github.artsiomch.jdcr.utils;
+
+import com.intellij.psi.JavaDocTokenType;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiWhiteSpace;
+import com.intellij.psi.javadoc.PsiDocToken;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
+import com.intellij.psi.util.PsiTreeUtil;
+import java.util.Arrays;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Offsets of all line breaks (new line {@link PsiWhiteSpace} with following leading asterisks)
+ * inside JavaDoc comment. Built once per comment modification, so splitting of range into visible
+ * line parts is a binary search instead of walking through the children.
+ */
+class LineBreaksIndex {
+
+  @NotNull private final CharSequence text;
+  // Sorted, relative to root element: [breakStarts[i], breakEnds[i]) = `\n *`
+  @NotNull private final int[] breakStarts;
+  @NotNull private final int[] breakEnds;
+
+  private LineBreaksIndex(@NotNull PsiElement root) {
+    text = root.getNode().getChars();
+    int rootStart = root.getTextRange().getStartOffset();
+    int[] starts = new int[8];
+    int[] ends = new int[8];
+    int size = 0;
+    for (PsiDocToken token : PsiTreeUtil.findChildrenOfType(root, PsiDocToken.class)) {
+      if (token.getTokenType() != JavaDocTokenType.DOC_COMMENT_LEADING_ASTERISKS
+          || !(token.getPrevSibling() instanceof PsiWhiteSpace)) {
+        continue;
+      }
+      if (size == starts.length) {
+        starts = Arrays.copyOf(starts, size * 2);
+        ends = Arrays.copyOf(ends, size * 2);
+      }
+      starts[size] = token.getPrevSibling().getTextRange().getStartOffset() - rootStart;
+      ends[size] = token.getTextRange().getEndOffset() - rootStart;
+      size++;
+    }
+    breakStarts = Arrays.copyOf(starts, size);
+    breakEnds = Arrays.copyOf(ends, size);
+  }
+
+  /** @param root JavaDoc comment (or other element) to index line breaks in */
+  @NotNull
+  static LineBreaksIndex getInstance(@NotNull PsiElement root) {
+    return CachedValuesManager.getCachedValue(
+        root, () -> CachedValueProvider.Result.create(new LineBreaksIndex(root), root));
+  }
+
+  /**
+   * Add parts of {@code [start, end)} (relative to root element) between line breaks without
+   * leading space after asterisks to {@code result}, shifted by {@code shift}.
+   */
+  void excludeLineBreaks(int start, int end, int shift, @NotNull RangeBuffer result) {
+    int prevLineBreak = start;
+    for (int i = firstBreakEndedAfter(start); i < breakStarts.length && breakStarts[i] < end; i++) {
+      if (breakStarts[i] > prevLineBreak) {
+        addWithoutLeadingSpace(result, prevLineBreak, breakStarts[i], shift);
+      }
+      prevLineBreak = breakEnds[i];
+    }
+    if (prevLineBreak < end) {
+      addWithoutLeadingSpace(result, prevLineBreak, end, shift);
+    }
+  }
+
+  // don't include ' ' at the begging of line (after leading asterisks) if any.
+  private void addWithoutLeadingSpace(@NotNull RangeBuffer result, int start, int end, int shift) {
+    if (start > 0 && text.charAt(start) == ' ' && text.charAt(start - 1) == '*') {
+      if (end - start > 1) { // hack to avoid 0 length TextRange
+        result.add(start + 1 + shift, end + shift);
+      }
+    } else result.add(start + shift, end + shift);
+  }
+
+  private int firstBreakEndedAfter(int offset) {
+    int low = 0;
+    int high = breakEnds.length;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (breakEnds[mid] <= offset) low = mid + 1;
+      else high = mid;
+    }
+    return low;
+  }
+}
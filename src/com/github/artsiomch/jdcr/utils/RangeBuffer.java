@@ -0,0 +1,155 @@
+package com.github.artsiomch.jdcr.utils;
+
+import com.intellij.openapi.util.TextRange;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Growable list of text ranges packed into a single {@code int[]} of start/end pairs. Used instead
+ * of {@code List<TextRange>} inside the engine: ranges are added, shifted and copied without an
+ * object per range. {@link TextRange}s are made only where the platform API requires them.
+ */
+public final class RangeBuffer {
+
+  /** Shared empty buffer, can't be modified. */
+  public static final RangeBuffer EMPTY = new RangeBuffer(0);
+
+  private int[] data; // start0, end0, start1, end1 ...
+  private int size = 0;
+
+  public RangeBuffer() {
+    this(4);
+  }
+
+  public RangeBuffer(int capacity) {
+    data = new int[capacity * 2];
+  }
+
+  /** @return buffer with copies of {@code ranges} */
+  @NotNull
+  public static RangeBuffer of(@NotNull List<TextRange> ranges) {
+    RangeBuffer result = new RangeBuffer(ranges.size());
+    for (TextRange range : ranges) {
+      result.add(range.getStartOffset(), range.getEndOffset());
+    }
+    return result;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  public int getStart(int index) {
+    return data[index * 2];
+  }
+
+  public int getEnd(int index) {
+    return data[index * 2 + 1];
+  }
+
+  public int getFirstStart() {
+    return getStart(0);
+  }
+
+  public int getLastEnd() {
+    return getEnd(size - 1);
+  }
+
+  @NotNull
+  public RangeBuffer add(int start, int end) {
+    checkModifiable();
+    if (size * 2 == data.length) {
+      data = Arrays.copyOf(data, Math.max(8, data.length * 2));
+    }
+    data[size * 2] = start;
+    data[size * 2 + 1] = end;
+    size++;
+    return this;
+  }
+
+  /** Add all ranges of {@code other} shifted by {@code shift}. */
+  @NotNull
+  public RangeBuffer addAll(@NotNull RangeBuffer other, int shift) {
+    for (int i = 0; i < other.size; i++) {
+      add(other.getStart(i) + shift, other.getEnd(i) + shift);
+    }
+    return this;
+  }
+
+  /** Shift all ranges by {@code shift} in place. */
+  @NotNull
+  public RangeBuffer shift(int shift) {
+    if (shift != 0) {
+      checkModifiable();
+      for (int i = 0; i < size * 2; i++) {
+        data[i] += shift;
+      }
+    }
+    return this;
+  }
+
+  /** Reverse order of ranges in place. */
+  @NotNull
+  public RangeBuffer reverse() {
+    for (int i = 0, j = size - 1; i < j; i++, j--) {
+      int start = data[i * 2];
+      int end = data[i * 2 + 1];
+      data[i * 2] = data[j * 2];
+      data[i * 2 + 1] = data[j * 2 + 1];
+      data[j * 2] = start;
+      data[j * 2 + 1] = end;
+    }
+    return this;
+  }
+
+  public void clear() {
+    size = 0;
+  }
+
+  /** Keep only first {@code newSize} ranges. */
+  public void truncate(int newSize) {
+    size = Math.min(size, newSize);
+  }
+
+  /** Replace range at {@code index}. */
+  public void set(int index, int start, int end) {
+    data[index * 2] = start;
+    data[index * 2 + 1] = end;
+  }
+
+  @NotNull
+  public TextRange getTextRange(int index) {
+    return new TextRange(getStart(index), getEnd(index));
+  }
+
+  @NotNull
+  public List<TextRange> toTextRanges() {
+    if (size == 0) return Collections.emptyList();
+    List<TextRange> result = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      result.add(getTextRange(i));
+    }
+    return result;
+  }
+
+  private void checkModifiable() {
+    if (this == EMPTY) throw new UnsupportedOperationException("RangeBuffer.EMPTY");
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder result = new StringBuilder("[");
+    for (int i = 0; i < size; i++) {
+      if (i > 0) result.append(", ");
+      result.append('(').append(getStart(i)).append(',').append(getEnd(i)).append(')');
+    }
+    return result.append(']').toString();
+  }
+}
@@ -1,40 +1,160 @@
 package com.github.artsiomch.jdcr.utils;
 
+import java.util.Locale;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
+/**
+ * HTML tag with value, like {@code <b>...</b>} or {@code <a href=...>...</a>}. Identified by tag
+ * name and (optionally) the first attribute name of open tag. Spaces and case are ignored.
+ *
+ * <p>Matching is done directly on the {@code (text, start, end)} window of found HTML tag, no
+ * intermediate strings are created.
+ */
 public class Tag {
 
-  @NotNull private String open;
-  @NotNull private String close;
+  static final int NOT_FOUND = -1;
 
+  @NotNull private final String name;
+  @Nullable private final String attribute;
+  private TagValueResolver resolver;
+
+  /**
+   * @param openTag open tag prefix, e.g. {@code <b>} or {@code <a href=}
+   * @param closeTag close tag, e.g. {@code </b>}
+   */
   public Tag(@NotNull String openTag, @NotNull String closeTag) {
-    this.open = removeWS(openTag);
-    this.close = removeWS(closeTag);
+    this(openTag);
+    assert isClosing(closeTag, 0, closeTag.length()) : closeTag;
+  }
+
+  /**
+   * @param openTag open tag prefix, e.g. {@code <b>} or {@code <a href=}, close tag is {@code
+   *     </name>}
+   * @throws IllegalArgumentException if {@code openTag} is not an open HTML tag
+   */
+  public Tag(@NotNull String openTag) {
+    int nameStart = nameStart(openTag, 0, openTag.length());
+    if (nameStart == NOT_FOUND || isClosing(openTag, 0, openTag.length())) {
+      throw new IllegalArgumentException("Not an open tag: " + openTag);
+    }
+    int nameEnd = wordEnd(openTag, nameStart, openTag.length());
+    int attributeStart = skipSpaces(openTag, nameEnd, openTag.length());
+    int attributeEnd = wordEnd(openTag, attributeStart, openTag.length());
+    this.name = openTag.substring(nameStart, nameEnd).toLowerCase(Locale.ROOT);
+    this.attribute =
+        attributeEnd > attributeStart
+            ? openTag.substring(attributeStart, attributeEnd).toLowerCase(Locale.ROOT)
+            : null;
   }
 
-  public boolean openIn(@NotNull String text){
-    return removeWS(text).contains(this.open);
+  /** @return tag name in lower case */
+  @NotNull
+  public String getName() {
+    return name;
+  }
+
+  /** @return first attribute name of open tag in lower case, e.g. {@code href} */
+  @Nullable
+  public String getAttribute() {
+    return attribute;
   }
 
-  public boolean closeIn(@NotNull String text){
-    return removeWS(text).contains(this.close);
+  public boolean openIn(@NotNull CharSequence text) {
+    return openIn(text, 0, text.length());
   }
 
-  private static final char ws = ' ';
+  public boolean closeIn(@NotNull CharSequence text) {
+    return closeIn(text, 0, text.length());
+  }
 
-  /** Remove spaces from given string. Optimised copy of Apache remove() */
+  /** @return true if HTML tag at {@code text[start, end)} is open tag of this Tag */
+  public boolean openIn(@NotNull CharSequence text, int start, int end) {
+    int nameStart = nameStart(text, start, end);
+    if (nameStart == NOT_FOUND
+        || isClosing(text, start, end)
+        || isSelfClosing(text, start, end)) {
+      return false;
+    }
+    int nameEnd = matchWord(text, nameStart, end, name);
+    if (nameEnd == NOT_FOUND) return false;
+    return attribute == null
+        || matchWord(text, skipSpaces(text, nameEnd, end), end, attribute) != NOT_FOUND;
+  }
+
+  /** @return true if HTML tag at {@code text[start, end)} is close tag of this Tag */
+  public boolean closeIn(@NotNull CharSequence text, int start, int end) {
+    int nameStart = nameStart(text, start, end);
+    return nameStart != NOT_FOUND
+        && isClosing(text, start, end)
+        && matchWord(text, nameStart, end, name) != NOT_FOUND;
+  }
+
+  /** Values of this Tag only, see {@link JdcrStringUtils#getValuesOfTag} */
   @NotNull
-  private String removeWS(@NotNull String text){
-    int index = text.indexOf(ws);
-    if (index < 0) {
-      return text;
+  TagValueResolver getResolver() {
+    if (resolver == null) resolver = new TagValueResolver(this);
+    return resolver;
+  }
+
+  /** @return start of tag name (after {@code <} or {@code </}) or {@link #NOT_FOUND} */
+  static int nameStart(@NotNull CharSequence text, int start, int end) {
+    int i = skipSpaces(text, start, end);
+    if (i == end || text.charAt(i) != '<') return NOT_FOUND;
+    i = skipSpaces(text, i + 1, end);
+    if (i < end && text.charAt(i) == '/') i = skipSpaces(text, i + 1, end);
+    return wordEnd(text, i, end) > i ? i : NOT_FOUND;
+  }
+
+  static int wordEnd(@NotNull CharSequence text, int from, int end) {
+    while (from < end && isWordChar(text.charAt(from))) from++;
+    return from;
+  }
+
+  /** @return case insensitive hash of {@code text[start, end)}, same as of lower case String */
+  static int hashIgnoreCase(@NotNull CharSequence text, int start, int end) {
+    int hash = 0;
+    for (int i = start; i < end; i++) {
+      hash = 31 * hash + Character.toLowerCase(text.charAt(i));
     }
-    final char[] chars = text.toCharArray();
-    int pos = index;
-    for (int i = index; i < chars.length; i++) {
-      if (chars[i] != ws) {
-        chars[pos++] = chars[i];
-      }
+    return hash;
+  }
+
+  private static boolean isClosing(@NotNull CharSequence text, int start, int end) {
+    int i = skipSpaces(text, start, end);
+    if (i == end || text.charAt(i) != '<') return false;
+    i = skipSpaces(text, i + 1, end);
+    return i < end && text.charAt(i) == '/';
+  }
+
+  private static boolean isSelfClosing(@NotNull CharSequence text, int start, int end) {
+    int last = end - 1;
+    if (last > start && text.charAt(last) == '>') last--;
+    while (last > start && Character.isWhitespace(text.charAt(last))) last--;
+    return last > start && text.charAt(last) == '/';
+  }
+
+  /**
+   * @param word in lower case
+   * @return end of {@code word} if it's found (ignoring case) at {@code from} as a whole word, or
+   *     {@link #NOT_FOUND}
+   */
+  private static int matchWord(
+      @NotNull CharSequence text, int from, int end, @NotNull String word) {
+    int wordEnd = from + word.length();
+    if (wordEnd > end) return NOT_FOUND;
+    for (int i = 0; i < word.length(); i++) {
+      if (Character.toLowerCase(text.charAt(from + i)) != word.charAt(i)) return NOT_FOUND;
     }
-    return (new String(chars, 0, pos));  }
+    return (wordEnd == end || !isWordChar(text.charAt(wordEnd))) ? wordEnd : NOT_FOUND;
+  }
+
+  private static int skipSpaces(@NotNull CharSequence text, int from, int end) {
+    while (from < end && Character.isWhitespace(text.charAt(from))) from++;
+    return from;
+  }
+
+  private static boolean isWordChar(char c) {
+    return c != '>' && c != '/' && c != '=' && c != '<' && !Character.isWhitespace(c);
+  }
 }
@@ -0,0 +1,172 @@
+package com.github.artsiomch.jdcr.utils;
+
+import com.intellij.openapi.util.TextRange;
+import java.util.Arrays;
+import java.util.List;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Values of {@link Tag}s paired by open/close tags through the whole text (possibly split by many
+ * PSI elements), sorted by value start. Built once with stack based matcher, so value of the tag
+ * opened in one element and closed in another one is found by binary search instead of looking
+ * ahead through the following elements.
+ */
+public class TagPairingIndex {
+
+  @NotNull private final int[] valueStarts;
+  @NotNull private final int[] valueEnds;
+  @NotNull private final Tag[] valueTags;
+
+  private TagPairingIndex(
+      @NotNull int[] valueStarts, @NotNull int[] valueEnds, @NotNull Tag[] valueTags) {
+    this.valueStarts = valueStarts;
+    this.valueEnds = valueEnds;
+    this.valueTags = valueTags;
+  }
+
+  public int size() {
+    return valueStarts.length;
+  }
+
+  public int getValueStart(int index) {
+    return valueStarts[index];
+  }
+
+  public int getValueEnd(int index) {
+    return valueEnds[index];
+  }
+
+  @NotNull
+  public Tag getValueTag(int index) {
+    return valueTags[index];
+  }
+
+  /** @return index of the first value started after {@code offset} or {@link #size()} if none. */
+  public int firstValueStartedAfter(int offset) {
+    int low = 0;
+    int high = valueStarts.length;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (valueStarts[mid] <= offset) low = mid + 1;
+      else high = mid;
+    }
+    return low;
+  }
+
+  /**
+   * Collect open/close tags <b>in order</b> of their offsets. Close tag is paired with the last not
+   * closed open tag of the same {@link Tag}. Lonely close tags and not closed open tags are
+   * skipped.
+   */
+  public static class Builder {
+    @NotNull private final TagValueResolver resolver;
+    @NotNull private final int[][] openStacks;
+    @NotNull private final int[] openStackSizes;
+
+    private int size = 0;
+    private int[] starts = new int[8];
+    private int[] ends = new int[8];
+    private int[] tagIndexes = new int[8];
+
+    public Builder(@NotNull TagValueResolver resolver) {
+      this.resolver = resolver;
+      openStacks = new int[resolver.getTags().length][];
+      openStackSizes = new int[resolver.getTags().length];
+    }
+
+    /**
+     * @param text text with HTML tags
+     * @param foundHtmlTags ranges of HTML tags in {@code text}
+     * @param shift offset of the {@code text} in the whole text
+     */
+    @NotNull
+    public Builder addTags(
+        @NotNull CharSequence text, @NotNull RangeBuffer foundHtmlTags, int shift) {
+      for (int r = 0; r < foundHtmlTags.size(); r++) {
+        addTag(text, foundHtmlTags.getStart(r), foundHtmlTags.getEnd(r), shift);
+      }
+      return this;
+    }
+
+    /** see {@link #addTags(CharSequence, RangeBuffer, int)} */
+    @NotNull
+    public Builder addTags(
+        @NotNull CharSequence text, @NotNull List<TextRange> foundHtmlTags, int shift) {
+      return addTags(text, RangeBuffer.of(foundHtmlTags), shift);
+    }
+
+    /**
+     * @param text text of HTML tag (e.g. joined parts of multiline tag)
+     * @param tagStart offset of the tag start in the whole text
+     * @param tagEnd offset of the tag end in the whole text
+     */
+    @NotNull
+    public Builder addTag(@NotNull CharSequence text, int tagStart, int tagEnd) {
+      int[] indexes = resolver.getTagIndexes(text, 0, text.length());
+      if (indexes != null) {
+        for (int i : indexes) {
+          Tag tag = resolver.getTags()[i];
+          if (tag.openIn(text, 0, text.length())) push(i, tagEnd);
+          if (tag.closeIn(text, 0, text.length())) pop(i, tagStart);
+        }
+      }
+      return this;
+    }
+
+    private void addTag(@NotNull CharSequence text, int start, int end, int shift) {
+      int[] indexes = resolver.getTagIndexes(text, start, end);
+      if (indexes != null) {
+        for (int i : indexes) {
+          Tag tag = resolver.getTags()[i];
+          if (tag.openIn(text, start, end)) push(i, end + shift);
+          if (tag.closeIn(text, start, end)) pop(i, start + shift);
+        }
+      }
+    }
+
+    private void push(int tagIndex, int valueStart) {
+      int[] stack = openStacks[tagIndex];
+      if (stack == null) {
+        stack = openStacks[tagIndex] = new int[4];
+      } else if (openStackSizes[tagIndex] == stack.length) {
+        stack = openStacks[tagIndex] = Arrays.copyOf(stack, stack.length * 2);
+      }
+      stack[openStackSizes[tagIndex]++] = valueStart;
+    }
+
+    private void pop(int tagIndex, int valueEnd) {
+      if (openStackSizes[tagIndex] == 0) return; // lonely close tag
+      int valueStart = openStacks[tagIndex][--openStackSizes[tagIndex]];
+      if (valueStart >= valueEnd) return; // empty value
+      if (size == starts.length) {
+        starts = Arrays.copyOf(starts, size * 2);
+        ends = Arrays.copyOf(ends, size * 2);
+        tagIndexes = Arrays.copyOf(tagIndexes, size * 2);
+      }
+      starts[size] = valueStart;
+      ends[size] = valueEnd;
+      tagIndexes[size] = tagIndex;
+      size++;
+    }
+
+    @NotNull
+    public TagPairingIndex build() {
+      // values are found in order of their ends, sort them by starts.
+      long[] startsWithIndex = new long[size];
+      for (int i = 0; i < size; i++) {
+        startsWithIndex[i] = ((long) starts[i] << 32) | i;
+      }
+      Arrays.sort(startsWithIndex);
+      int[] valueStarts = new int[size];
+      int[] valueEnds = new int[size];
+      Tag[] valueTags = new Tag[size];
+      for (int i = 0; i < size; i++) {
+        int index = (int) startsWithIndex[i];
+        valueStarts[i] = starts[index];
+        valueEnds[i] = ends[index];
+        valueTags[i] = resolver.getTags()[tagIndexes[index]];
+      }
+      return new TagPairingIndex(valueStarts, valueEnds, valueTags);
+    }
+  }
+}
@@ -0,0 +1,176 @@
+package com.github.artsiomch.jdcr.utils;
+
+import com.intellij.openapi.util.TextRange;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.IntStream;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Find values of several {@link Tag}s at once. Each found HTML tag is looked up by its name only
+ * once, so the cost doesn't depend on the number of supported tags. Nested tags (like
+ * {@code <b><i>...</i></b>}) are resolved in the same walk.
+ */
+public class TagValueResolver {
+
+  /** Value of {@link Tag} found in text. */
+  public static class TagValue {
+    @NotNull private final Tag tag;
+    @NotNull private final TextRange range;
+
+    TagValue(@NotNull Tag tag, @NotNull TextRange range) {
+      this.tag = tag;
+      this.range = range;
+    }
+
+    @NotNull
+    public Tag getTag() {
+      return tag;
+    }
+
+    @NotNull
+    public TextRange getRange() {
+      return range;
+    }
+  }
+
+  private static final int EMPTY_INDEX = -2;
+  private static final List<TagValue> EMPTY_LIST = Collections.emptyList();
+
+  @NotNull private final Tag[] tags;
+  // Sorted hashes of tag names and indexes (in tags) of Tags with such name hash.
+  @NotNull private final int[] nameHashes;
+  @NotNull private final int[][] tagIndexes;
+
+  public TagValueResolver(@NotNull Tag... tags) {
+    this.tags = tags;
+    int[] hashes = new int[tags.length];
+    for (int i = 0; i < tags.length; i++) {
+      hashes[i] = tags[i].getName().hashCode();
+    }
+    nameHashes = Arrays.stream(hashes).distinct().sorted().toArray();
+    tagIndexes = new int[nameHashes.length][];
+    for (int h = 0; h < nameHashes.length; h++) {
+      final int hash = nameHashes[h];
+      tagIndexes[h] = IntStream.range(0, tags.length).filter(i -> hashes[i] == hash).toArray();
+    }
+  }
+
+  /**
+   * Same as {@link JdcrStringUtils#getValuesOfTag(CharSequence, Tag, List)} for all the tags at
+   * once.
+   *
+   * @param text text to parse
+   * @param foundHtmlTags pre-fetched ranges of html Tags in {@code text}
+   * @return values of all tags in order of their ends. If open or close tag not found: Range to the
+   *     end / from beginning of {@code text} added (to search in "upper" method for close/open tag
+   *     in siblings).
+   */
+  @NotNull
+  public List<TagValue> resolve(
+      @NotNull CharSequence text, @NotNull List<TextRange> foundHtmlTags) {
+    return resolve(text, RangeBuffer.of(foundHtmlTags));
+  }
+
+  /** see {@link #resolve(CharSequence, List)} */
+  @NotNull
+  public List<TagValue> resolve(@NotNull CharSequence text, @NotNull RangeBuffer foundHtmlTags) {
+    if (foundHtmlTags.isEmpty()) {
+      return EMPTY_LIST;
+    }
+    List<TagValue> result = null;
+    int[] starts = null;
+    int[] ends = null;
+    for (int r = 0; r < foundHtmlTags.size(); r++) {
+      int start = foundHtmlTags.getStart(r);
+      int end = foundHtmlTags.getEnd(r);
+      int[] indexes = getTagIndexes(text, start, end);
+      if (indexes == null) continue;
+      if (starts == null) {
+        starts = newIndexArray();
+        ends = newIndexArray();
+        result = new ArrayList<>();
+      }
+      for (int i : indexes) {
+        Tag tag = tags[i];
+        if (tag.openIn(text, start, end)) {
+          starts[i] = end;
+        }
+        if (tag.closeIn(text, start, end)) {
+          ends[i] = start;
+        }
+        if (starts[i] != EMPTY_INDEX && ends[i] != EMPTY_INDEX && starts[i] < ends[i]) {
+          result.add(new TagValue(tag, new TextRange(starts[i], ends[i])));
+          starts[i] = EMPTY_INDEX;
+          ends[i] = EMPTY_INDEX;
+        }
+        // possible end of multiline tag
+        if (ends[i] != EMPTY_INDEX && starts[i] == EMPTY_INDEX) {
+          result.add(new TagValue(tag, new TextRange(0, ends[i])));
+          ends[i] = EMPTY_INDEX;
+        }
+      }
+    }
+    if (starts == null) {
+      return EMPTY_LIST;
+    }
+    // possible start of multiline tag
+    for (int i = 0; i < tags.length; i++) {
+      if (starts[i] != EMPTY_INDEX && ends[i] == EMPTY_INDEX) {
+        result.add(new TagValue(tags[i], new TextRange(starts[i], text.length())));
+      }
+    }
+    return result;
+  }
+
+  /** @return tags opened by {@code text} of (multiline) HTML tag */
+  @NotNull
+  public List<Tag> getOpenedTags(@NotNull CharSequence text) {
+    return getTags(text, true);
+  }
+
+  /** @return tags closed by {@code text} of (multiline) HTML tag */
+  @NotNull
+  public List<Tag> getClosedTags(@NotNull CharSequence text) {
+    return getTags(text, false);
+  }
+
+  @NotNull
+  private List<Tag> getTags(@NotNull CharSequence text, boolean opened) {
+    int[] indexes = getTagIndexes(text, 0, text.length());
+    if (indexes == null) return Collections.emptyList();
+    List<Tag> result = new ArrayList<>(indexes.length);
+    for (int i : indexes) {
+      Tag tag = tags[i];
+      if (opened ? tag.openIn(text, 0, text.length()) : tag.closeIn(text, 0, text.length())) {
+        result.add(tag);
+      }
+    }
+    return result;
+  }
+
+  @NotNull
+  Tag[] getTags() {
+    return tags;
+  }
+
+  /** @return indexes of Tags with the same name hash as HTML tag at {@code text[start, end)} */
+  @Nullable
+  int[] getTagIndexes(@NotNull CharSequence text, int start, int end) {
+    int nameStart = Tag.nameStart(text, start, end);
+    if (nameStart == Tag.NOT_FOUND) return null;
+    int nameHash = Tag.hashIgnoreCase(text, nameStart, Tag.wordEnd(text, nameStart, end));
+    int h = Arrays.binarySearch(nameHashes, nameHash);
+    return h < 0 ? null : tagIndexes[h];
+  }
+
+  @NotNull
+  private int[] newIndexArray() {
+    int[] result = new int[tags.length];
+    Arrays.fill(result, EMPTY_INDEX);
+    return result;
+  }
+}
@@ -10,9 +10,9 @@
  * <info descr="MY_BOLD">tag</info><info descr="MY_BORDERED"></b></info> with another multiline <info descr="MY_BORDERED"><b></info><info descr="MY_BOLD"> bold tag </info>
  * <info descr="MY_BORDERED"></b></info> with inline <info descr="MY_BORDERED"><b></info><info descr="MY_BOLD">bold tag</info><info descr="MY_BORDERED"></b></info>.
  *
- * multiline html tag with nested javadoc tag: <info descr="MY_BORDERED"><pre></info><info descr="code_tag"> html tag body </info><info descr="MY_BORDERED"><info descr="code_tag">{@code</info></info>
- * <info descr="code_tag"><info descr="code_tag"> html and javadoc tag body</info></info>
- * <info descr="MY_BORDERED"><info descr="code_tag">}</info></info><info descr="code_tag"> html tag body </info><info descr="MY_BORDERED"></pre></info>
+ * multiline html tag with nested javadoc tag: <info descr="MY_BORDERED"><pre></info><info descr="code_tag"> html tag body <info descr="MY_BORDERED">{@code</info></info>
+ * <info descr="code_tag"> html and javadoc tag body</info>
+ * <info descr="code_tag"><info descr="MY_BORDERED">}</info> html tag body </info><info descr="MY_BORDERED"></pre></info>
  *
  * multiline tag start <info descr="DEFAULT_DOC_MARKUP"><info descr="MY_BORDERED"><b </info></info>
  * <info descr="DEFAULT_DOC_MARKUP"><info descr="MY_BORDERED">></info></info><info descr="MY_BOLD"> with multiline end </info><info descr="DEFAULT_DOC_MARKUP"><info descr="MY_BORDERED"></b </info></info>
@@ -2,6 +2,8 @@
  * normal and <info descr="MY_BORDERED"><b></info><info descr="MY_BOLD">bold</info><info descr="MY_BORDERED"></b></info> text
  * normal and <info descr="MY_BORDERED"><i></info><info descr="MY_ITALIC">italic</info><info descr="MY_BORDERED"></i></info> text
  * normal and <info descr="MY_BORDERED"><code></info><info descr="code_tag">code</info><info descr="MY_BORDERED"></code></info> text
+ * normal and <info descr="MY_BORDERED"><STRONG></info><info descr="MY_BOLD">strong</info><info descr="MY_BORDERED"></STRONG></info> text
+ * normal and <info descr="MY_BORDERED"><kbd></info><info descr="code_tag">kbd</info><info descr="MY_BORDERED"></kbd></info> text
  * normal and <info descr="MY_BORDERED"><tt></info><info descr="code_tag">tt</info><info descr="MY_BORDERED"></tt></info> text
  * html link <info descr="MY_BORDERED"><a href="http://www.jetbrains.org"></info><info descr="html_link_tag">JetBrains</info><info descr="MY_BORDERED"></a></info>
  * <info descr="MY_BORDERED"><a link=""></info>NOT valid link tag<info descr="MY_BORDERED"></a></info>
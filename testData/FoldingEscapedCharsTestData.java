@@ -1,5 +1,5 @@
 <fold text='/** Escaped chars: &nbsp; &amp;&amp; ...*/'>/**
- * Escaped chars: <fold text=' '>&nbsp;</fold> <fold text='&&'>&amp;&amp;</fold>
+ * Escaped chars: <fold text='  &&'>&nbsp; &amp;&amp;</fold>
  */</fold>
 
 
@@ -0,0 +1,8 @@
+<fold text='/** Inline tag inside of HTML tag. ...*/'>/**
+ * Inline tag inside of HTML tag.
+ * See <fold text=''><a href="<fold text=''>{@link </fold>Foo<fold text=''>}</fold>"></fold>foo<fold text=''></a></fold> and <fold text=''><a</fold>
+ * <fold text=''>href="<fold text=''>{@link </fold>Foo<fold text=''>}</fold>"></fold>multiline<fold text=''></a></fold>.
+ */</fold>
+
+
+public class FoldingInlineTagInsideHtmlTagTestData {}
\ No newline at end of file
@@ -1,6 +1,6 @@
 <fold text='/** Link multiline after open tag: {@link ...*/'>/**
  * Link multiline after open tag: <fold text=''>{@link</fold>
- * java.nio.charset.Charset#name()<fold text=''> name</fold><fold text=''>}</fold>
+ * java.nio.charset.Charset#name()<fold text=''> name}</fold>
  */</fold>
 
 
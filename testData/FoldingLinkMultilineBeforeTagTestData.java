@@ -1,7 +1,7 @@
 <fold text='/** Link multiline before closing tag tag: {@link java.nio.charset.Charset#name() ...*/'>/**
  * Link multiline before closing tag tag: <fold text=''>{@link </fold>java.nio.charset.Charset#name()
  * <fold text=''>name</fold>
- * <fold text=''>name</fold><fold text=''>}</fold> blablabla
+ * <fold text=''>name}</fold> blablabla
  */</fold>
 
 
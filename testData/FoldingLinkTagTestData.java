@@ -1,12 +1,12 @@
 <fold text='/** {@link #link_tag} ...*/'>/**
  * <fold text=''>{@link </fold>#link_tag<fold text=''>}</fold>
- * <fold text=''>{@link </fold>#link_tag<fold text=''> link_name</fold><fold text=''>}</fold>
+ * <fold text=''>{@link </fold>#link_tag<fold text=''> link_name}</fold>
  * <fold text=''>{@link </fold>link_tag<fold text=''>}</fold>
- * <fold text=''>{@link </fold>link_tag<fold text=''> link_name</fold><fold text=''>}</fold>
+ * <fold text=''>{@link </fold>link_tag<fold text=''> link_name}</fold>
  * <fold text=''>{@linkplain </fold>#link_tag<fold text=''>}</fold>
- * <fold text=''>{@linkplain </fold>#link_tag<fold text=''> link_name</fold><fold text=''>}</fold>
+ * <fold text=''>{@linkplain </fold>#link_tag<fold text=''> link_name}</fold>
  * <fold text=''>{@linkplain </fold>link_tag<fold text=''>}</fold>
- * <fold text=''>{@linkplain </fold>link_tag<fold text=''> link_name</fold><fold text=''>}</fold>
+ * <fold text=''>{@linkplain </fold>link_tag<fold text=''> link_name}</fold>
  * <fold text=''>{@link }</fold>
  * <fold text=''>{@link}</fold>
  * {@link incomplete_link_tag
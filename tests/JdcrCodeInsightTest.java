@@ -1,13 +1,43 @@
-import com.intellij.testFramework.ExpectedHighlightingData;
+import com.github.artsiomch.jdcr.JdcrFoldingBuilder;
+import com.github.artsiomch.jdcr.utils.FoldStateIndex;
+import com.github.artsiomch.jdcr.utils.JdcrPsiTreeUtils;
+import com.intellij.codeInsight.folding.CodeFoldingManager;
+import com.intellij.lang.folding.FoldingDescriptor;
+import com.intellij.openapi.editor.Editor;
+import com.intellij.openapi.editor.FoldRegion;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.util.registry.Registry;
+import com.intellij.psi.javadoc.PsiDocComment;
+import com.intellij.psi.util.PsiTreeUtil;
 import com.intellij.testFramework.fixtures.LightCodeInsightFixtureTestCase;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
 
 public class JdcrCodeInsightTest extends LightCodeInsightFixtureTestCase {
 
+  private static final String QUICK_ANALYSIS_BUDGET_KEY = "jdcr.quick.analysis.chars.per.pass";
+
   @Override
   protected String getTestDataPath() {
     return "testData";
   }
 
+  @Override
+  protected void tearDown() throws Exception {
+    try {
+      Registry.get(QUICK_ANALYSIS_BUDGET_KEY).resetToDefault();
+    } finally {
+      super.tearDown();
+    }
+  }
+
   public void testAnnotatorSingleLineTagsHighlighting() {
     myFixture.configureByFiles("AnnotatorSinglelineTagsTestData.java");
     myFixture.checkHighlighting(false, true, false, false);
@@ -15,8 +45,7 @@ public class JdcrCodeInsightTest extends LightCodeInsightFixtureTestCase {
 
   public void testAnnotatorMultilineTagsHighlighting() {
     myFixture.configureByFiles("AnnotatorMultilineTagsTestData.java");
-    ExpectedHighlightingData.expectedDuplicatedHighlighting(
-        () -> myFixture.checkHighlighting(false, true, false, false));
+    myFixture.checkHighlighting(false, true, false, false);
   }
 
   public void testFoldingHtmlTags() {
@@ -50,4 +79,172 @@ public class JdcrCodeInsightTest extends LightCodeInsightFixtureTestCase {
   public void testFoldingEscapedChars() {
     myFixture.testFolding(getTestDataPath() + "/FoldingEscapedCharsTestData.java");
   }
+
+  public void testFoldingInlineTagInsideHtmlTag() {
+    myFixture.testFolding(getTestDataPath() + "/FoldingInlineTagInsideHtmlTagTestData.java");
+  }
+
+  public void testQuickFoldingSkipsMultilineTags() {
+    myFixture.configureByText(
+        "QuickFolding.java",
+        "/**\n * <b>bold</b> <a\n * href=\"www\">link</a>\n */\npublic class QuickFolding {}");
+    // quick pass analyses nothing in full
+    Registry.get(QUICK_ANALYSIS_BUDGET_KEY).setValue(0);
+    JdcrFoldingBuilder foldingBuilder = new JdcrFoldingBuilder();
+    FoldingDescriptor[] quickFolds =
+        foldingBuilder.buildFoldRegions(
+            myFixture.getFile(), myFixture.getEditor().getDocument(), true);
+    FoldingDescriptor[] fullFolds =
+        foldingBuilder.buildFoldRegions(
+            myFixture.getFile(), myFixture.getEditor().getDocument(), false);
+    // <b> </b> </a>
+    assertEquals(3, quickFolds.length);
+    // <b> `</b> <a` href="www"> </a>
+    assertEquals(4, fullFolds.length);
+  }
+
+  /** Comments over the quick pass budget are folded in full by the following pass. */
+  public void testFoldingAfterQuickAndFullPasses() throws IOException {
+    String[] fileNames = {
+      "FoldingHtmlTagsTestData.java",
+      "FoldingCodeTagTestData.java",
+      "FoldingCodeTagWithGenericsTestData.java",
+      "FoldingLiteralTagTestData.java",
+      "FoldingLinkTagTestData.java",
+      "FoldingLinkMultilineAfterTagTestData.java",
+      "FoldingLinkMultilineBeforeTagTestData.java",
+      "FoldingEscapedCharsTestData.java",
+      "FoldingInlineTagInsideHtmlTagTestData.java"
+    };
+    Registry.get(QUICK_ANALYSIS_BUDGET_KEY).setValue(0);
+    for (String fileName : fileNames) {
+      doFoldingTest(fileName);
+    }
+  }
+
+  public void testFoldingLocalAndAnonymousClasses() {
+    myFixture.configureByText(
+        "LocalClasses.java",
+        "public class LocalClasses {\n"
+            + "  Runnable field = new Runnable() {\n"
+            + "    /** Field <b>anonymous</b>. */\n"
+            + "    public void run() {}\n"
+            + "  };\n"
+            + "  void method() {\n"
+            + "    String text = \"/** not a comment */\";\n"
+            + "    new Thread(new Runnable() {\n"
+            + "      /** Method <i>anonymous</i>. */\n"
+            + "      public void run() {}\n"
+            + "    });\n"
+            + "    class Local {\n"
+            + "      /** Method <code>local</code>. */\n"
+            + "      void local() {}\n"
+            + "    }\n"
+            + "  }\n"
+            + "}");
+    FoldingDescriptor[] folds =
+        new JdcrFoldingBuilder()
+            .buildFoldRegions(myFixture.getFile(), myFixture.getEditor().getDocument(), false);
+    Collection<PsiDocComment> comments =
+        PsiTreeUtil.findChildrenOfType(myFixture.getFile(), PsiDocComment.class);
+    assertEquals(3, comments.size());
+    // open and close tag of each comment
+    assertEquals(6, folds.length);
+    for (PsiDocComment comment : comments) {
+      assertEquals(
+          comment.getText(),
+          2,
+          Arrays.stream(folds)
+              .filter(fold -> comment.getTextRange().contains(fold.getRange()))
+              .count());
+    }
+  }
+
+  public void testFoldsAnchoredOnFoldedLeaves() {
+    myFixture.configureByFiles("FoldingInlineTagInsideHtmlTagTestData.java");
+    FoldingDescriptor[] descriptors =
+        new JdcrFoldingBuilder()
+            .buildFoldRegions(myFixture.getFile(), myFixture.getEditor().getDocument(), false);
+    assertTrue(descriptors.length > 0);
+    for (FoldingDescriptor descriptor : descriptors) {
+      // the comment node is left to the Java fold of the whole comment
+      assertFalse(descriptor.toString(), descriptor.getElement().getPsi() instanceof PsiDocComment);
+      assertTrue(
+          descriptor.toString(),
+          descriptor.getElement().getTextRange().contains(descriptor.getRange().getStartOffset()));
+    }
+  }
+
+  public void testIsFoldedFollowsFoldState() {
+    myFixture.configureByText(
+        "FoldState.java",
+        "/** Class <b>doc</b>. */\n"
+            + "public class FoldState {\n"
+            + "  /** Field <i>doc</i>. */\n"
+            + "  int f;\n"
+            + "}");
+    Editor editor = myFixture.getEditor();
+    CodeFoldingManager.getInstance(getProject()).buildInitialFoldings(editor);
+    CodeFoldingManager.getInstance(getProject()).updateFoldRegions(editor);
+    List<PsiDocComment> comments =
+        new ArrayList<>(PsiTreeUtil.findChildrenOfType(myFixture.getFile(), PsiDocComment.class));
+    // regions are walked without index
+    assertTrue(JdcrPsiTreeUtils.isFolded(comments.get(0)));
+    assertTrue(JdcrPsiTreeUtils.isFolded(comments.get(1).getLastChild()));
+
+    FoldStateIndex.install(editor);
+    assertTrue(JdcrPsiTreeUtils.isFolded(comments.get(0)));
+    assertTrue(JdcrPsiTreeUtils.isFolded(comments.get(1).getLastChild()));
+    FoldRegion fieldFold =
+        editor
+            .getFoldingModel()
+            .getCollapsedRegionAtOffset(
+                comments.get(1).getTextRange().getStartOffset() + "/** Field ".length());
+    editor.getFoldingModel().runBatchFoldingOperation(() -> fieldFold.setExpanded(true));
+    assertTrue(JdcrPsiTreeUtils.isFolded(comments.get(0)));
+    assertFalse(JdcrPsiTreeUtils.isFolded(comments.get(1)));
+    assertFalse(JdcrPsiTreeUtils.isFolded(myFixture.getFile().getLastChild()));
+  }
+
+  /**
+   * Same as {@link com.intellij.testFramework.fixtures.CodeInsightTestFixture#testFolding} but
+   * checks folding after the quick pass (on file opening) followed by the full pass.
+   */
+  private void doFoldingTest(String fileName) throws IOException {
+    String expected = FileUtil.loadFile(new File(getTestDataPath(), fileName));
+    myFixture.configureByText(fileName, expected.replaceAll("<fold text='[^']*'>|</fold>", ""));
+    CodeFoldingManager.getInstance(getProject()).buildInitialFoldings(myFixture.getEditor());
+    CodeFoldingManager.getInstance(getProject()).updateFoldRegions(myFixture.getEditor());
+    assertEquals(expected, getFoldingDescription(myFixture.getEditor()));
+  }
+
+  private static String getFoldingDescription(Editor editor) {
+    String text = editor.getDocument().getText();
+    FoldRegion[] foldRegions = editor.getFoldingModel().getAllFoldRegions();
+    Arrays.sort(
+        foldRegions,
+        Comparator.comparingInt(FoldRegion::getStartOffset)
+            .thenComparing(Comparator.comparingInt(FoldRegion::getEndOffset).reversed()));
+    StringBuilder result = new StringBuilder();
+    Deque<FoldRegion> opened = new ArrayDeque<>();
+    int offset = 0;
+    for (FoldRegion foldRegion : foldRegions) {
+      while (!opened.isEmpty() && opened.peek().getEndOffset() <= foldRegion.getStartOffset()) {
+        offset = closeFold(result, text, offset, opened.pop());
+      }
+      result.append(text, offset, foldRegion.getStartOffset());
+      result.append("<fold text='").append(foldRegion.getPlaceholderText()).append("'>");
+      offset = foldRegion.getStartOffset();
+      opened.push(foldRegion);
+    }
+    while (!opened.isEmpty()) {
+      offset = closeFold(result, text, offset, opened.pop());
+    }
+    return result.append(text.substring(offset)).toString();
+  }
+
+  private static int closeFold(StringBuilder result, String text, int offset, FoldRegion fold) {
+    result.append(text, offset, fold.getEndOffset()).append("</fold>");
+    return fold.getEndOffset();
+  }
 }
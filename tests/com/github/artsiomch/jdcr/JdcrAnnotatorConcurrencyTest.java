@@ -0,0 +1,75 @@
+package com.github.artsiomch.jdcr;
+
+import com.intellij.ide.highlighter.JavaFileType;
+import com.intellij.lang.annotation.Annotation;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiFileFactory;
+import com.intellij.testFramework.fixtures.LightCodeInsightFixtureTestCase;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Single {@link JdcrAnnotator} instance annotates many files from many threads at once, as
+ * concurrent highlighting of several editors does. Results must be the same as sequential ones.
+ */
+public class JdcrAnnotatorConcurrencyTest extends LightCodeInsightFixtureTestCase {
+
+  private static final int FILES = 32;
+  private static final int THREADS = 8;
+  private static final int ROUNDS = 5;
+
+  public void testConcurrentAnnotatingSameAsSequential() throws Exception {
+    JdcrAnnotator annotator = new JdcrAnnotator();
+    List<String> texts = new ArrayList<>();
+    List<String> expected = new ArrayList<>();
+    for (int i = 0; i < FILES; i++) {
+      // even files share their comments
+      texts.add(JdcrTestUtils.generate("Concurrent" + i, i % 2 == 0 ? "shared" : i + "_", 20 + i));
+      expected.add(annotate(annotator, createFile(i, texts.get(i))));
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    try {
+      for (int round = 0; round < ROUNDS; round++) {
+        // fresh PSI and empty model cache: all threads analyse comments at the same time
+        JdcrDocCommentModelCache.getInstance().clear();
+        List<PsiFile> files = new ArrayList<>();
+        for (int i = 0; i < FILES; i++) {
+          files.add(createFile(i, texts.get(i)));
+        }
+        List<Future<String>> results = new ArrayList<>();
+        for (PsiFile file : files) {
+          results.add(executor.submit(() -> ReadAction.compute(() -> annotate(annotator, file))));
+        }
+        for (int i = 0; i < FILES; i++) {
+          assertEquals("file " + i + ", round " + round, expected.get(i), results.get(i).get());
+        }
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private PsiFile createFile(int index, String text) {
+    return PsiFileFactory.getInstance(getProject())
+        .createFileFromText("Concurrent" + index + ".java", JavaFileType.INSTANCE, text);
+  }
+
+  private static String annotate(JdcrAnnotator annotator, PsiFile file) {
+    StringBuilder result = new StringBuilder();
+    for (Annotation annotation : JdcrTestUtils.annotate(annotator, file)) {
+      result
+          .append(annotation.getStartOffset())
+          .append('-')
+          .append(annotation.getEndOffset())
+          .append(' ')
+          .append(annotation.getTextAttributes().getExternalName())
+          .append('\n');
+    }
+    return result.toString();
+  }
+}
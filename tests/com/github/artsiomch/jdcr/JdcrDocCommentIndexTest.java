@@ -0,0 +1,68 @@
+package com.github.artsiomch.jdcr;
+
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.javadoc.PsiDocComment;
+import com.intellij.psi.util.PsiTreeUtil;
+import com.intellij.testFramework.fixtures.LightCodeInsightFixtureTestCase;
+import com.intellij.util.io.DataExternalizer;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+public class JdcrDocCommentIndexTest extends LightCodeInsightFixtureTestCase {
+
+  public void testModelsSurviveSerialization() throws IOException {
+    PsiFile file =
+        myFixture.configureByText(
+            "Library.java",
+            "/** Class <b>doc</b> &amp; {@link java.util.List list}. */\n"
+                + "public class Library {\n"
+                + "  /**\n"
+                + "   * Method <i>multiline\n"
+                + "   * doc</i> with {@code code} and <a href=\"https://example.com\">link</a>.\n"
+                + "   */\n"
+                + "  void method() {}\n"
+                + "}\n");
+    Map<Integer, JdcrDocCommentIndex.CommentModel> models = new HashMap<>();
+    Map<Integer, String> texts = new HashMap<>();
+    for (PsiDocComment comment : PsiTreeUtil.findChildrenOfType(file, PsiDocComment.class)) {
+      int commentStart = comment.getTextRange().getStartOffset();
+      models.put(
+          commentStart,
+          new JdcrDocCommentIndex.CommentModel(
+              comment.getText(), JdcrDocCommentAnalyzer.analyse(comment)));
+      texts.put(commentStart, comment.getText());
+    }
+
+    DataExternalizer<Map<Integer, JdcrDocCommentIndex.CommentModel>> externalizer =
+        new JdcrDocCommentIndex().getValueExternalizer();
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    externalizer.save(new DataOutputStream(bytes), models);
+    Map<Integer, JdcrDocCommentIndex.CommentModel> read =
+        externalizer.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+    assertEquals(models.keySet(), read.keySet());
+    for (Integer commentStart : models.keySet()) {
+      String text = texts.get(commentStart);
+      assertTrue(read.get(commentStart).isMadeOf(text));
+      assertFalse(read.get(commentStart).isMadeOf(text.replace("doc", "dog")));
+      assertFalse(read.get(commentStart).isMadeOf(text + ' '));
+      JdcrDocCommentModel expected = models.get(commentStart).getModel();
+      JdcrDocCommentModel actual = read.get(commentStart).getModel();
+      assertEquals(expected.getUncoalescedFoldCount(), actual.getUncoalescedFoldCount());
+      assertEquals(expected.getFoldRanges().toString(), actual.getFoldRanges().toString());
+      for (int i = 0; i < expected.getFoldRanges().size(); i++) {
+        assertEquals(expected.getPlaceholderText(i), actual.getPlaceholderText(i));
+      }
+      assertEquals(
+          expected.getHighlightRanges().toString(), actual.getHighlightRanges().toString());
+      for (int i = 0; i < expected.getHighlightRanges().size(); i++) {
+        assertEquals(expected.getTextAttributesKey(i), actual.getTextAttributesKey(i));
+      }
+    }
+  }
+}
@@ -0,0 +1,129 @@
+package com.github.artsiomch.jdcr;
+
+import com.intellij.lang.folding.FoldingDescriptor;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.util.registry.Registry;
+import com.intellij.psi.PsiFile;
+import com.intellij.testFramework.PlatformTestUtil;
+import com.intellij.testFramework.fixtures.LightCodeInsightFixtureTestCase;
+
+/**
+ * Folding and highlighting of big generated files. Time budget is proportional to the file size, so
+ * any super-linear slowdown fails the biggest file first. Each attempt is made on freshly changed
+ * comments: neither PSI cached values nor {@link JdcrDocCommentModelCache} are reused.
+ */
+public class JdcrPerformanceTest extends LightCodeInsightFixtureTestCase {
+
+  private static final int FOLDING_MS_PER_1K_LINES = 30;
+  private static final int ANNOTATING_MS_PER_1K_LINES = 30;
+  private static final int BLOCK_LINES = JdcrTestUtils.METHOD_LINES;
+
+  private int attempt = 0;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    // measure the full analysis of the whole file, not the cheap one of over budget comments
+    Registry.get(WorkBudget.CHARS_PER_PASS_KEY).setValue(Integer.MAX_VALUE);
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    try {
+      Registry.get(WorkBudget.CHARS_PER_PASS_KEY).resetToDefault();
+      Registry.get(JdcrFoldingBuilder.PARALLEL_THRESHOLD_KEY).resetToDefault();
+    } finally {
+      super.tearDown();
+    }
+  }
+
+  public void testFolding1kLines() {
+    doFoldingTest(1_000);
+  }
+
+  public void testFolding10kLines() {
+    doFoldingTest(10_000);
+  }
+
+  public void testFolding50kLines() {
+    doFoldingTest(50_000);
+  }
+
+  public void testAnnotating1kLines() {
+    doAnnotatingTest(1_000);
+  }
+
+  public void testAnnotating10kLines() {
+    doAnnotatingTest(10_000);
+  }
+
+  public void testAnnotating50kLines() {
+    doAnnotatingTest(50_000);
+  }
+
+  public void testParallelFoldingSameAsSequential() {
+    String text = generate(10_000);
+    assertEquals(describeFolding(text, Integer.MAX_VALUE), describeFolding(text, 1));
+  }
+
+  /** @return folding of freshly configured {@code text} with the parallel folding threshold */
+  private String describeFolding(String text, int parallelThreshold) {
+    Registry.get(JdcrFoldingBuilder.PARALLEL_THRESHOLD_KEY).setValue(parallelThreshold);
+    JdcrDocCommentModelCache.getInstance().clear();
+    PsiFile file = myFixture.configureByText("Generated.java", text);
+    Document document = myFixture.getEditor().getDocument();
+    StringBuilder result = new StringBuilder();
+    for (FoldingDescriptor descriptor :
+        new JdcrFoldingBuilder().buildFoldRegions(file, document, false)) {
+      result.append(descriptor.getRange()).append(descriptor.getPlaceholderText()).append('\n');
+    }
+    return result.toString();
+  }
+
+  private void doFoldingTest(int lines) {
+    int foldsPerBlock = getFoldsCount(configure(BLOCK_LINES));
+    int[] foldsCount = {0};
+    PlatformTestUtil.startPerformanceTest(
+            "JDCR folding of " + lines + " lines",
+            lines * FOLDING_MS_PER_1K_LINES / 1_000,
+            () -> foldsCount[0] = getFoldsCount(myFixture.getFile()))
+        .setup(() -> configure(lines))
+        .attempts(3)
+        .assertTiming();
+    System.out.printf("%6d lines: %7d fold regions%n", lines, foldsCount[0]);
+    assertEquals(lines / BLOCK_LINES * foldsPerBlock, foldsCount[0]);
+  }
+
+  private void doAnnotatingTest(int lines) {
+    int annotationsPerBlock = getAnnotationsCount(configure(BLOCK_LINES));
+    int[] annotationsCount = {0};
+    PlatformTestUtil.startPerformanceTest(
+            "JDCR annotating of " + lines + " lines",
+            lines * ANNOTATING_MS_PER_1K_LINES / 1_000,
+            () -> annotationsCount[0] = getAnnotationsCount(myFixture.getFile()))
+        .setup(() -> configure(lines))
+        .attempts(3)
+        .assertTiming();
+    System.out.printf("%6d lines: %7d annotations%n", lines, annotationsCount[0]);
+    assertEquals(lines / BLOCK_LINES * annotationsPerBlock, annotationsCount[0]);
+  }
+
+  private int getFoldsCount(PsiFile file) {
+    Document document = myFixture.getEditor().getDocument();
+    return new JdcrFoldingBuilder().buildFoldRegions(file, document, false).length;
+  }
+
+  private static int getAnnotationsCount(PsiFile file) {
+    return JdcrTestUtils.annotate(new JdcrAnnotator(), file).size();
+  }
+
+  private PsiFile configure(int lines) {
+    JdcrDocCommentModelCache.getInstance().clear();
+    attempt++;
+    return myFixture.configureByText("Generated.java", generate(lines));
+  }
+
+  private String generate(int lines) {
+    return JdcrTestUtils.generate("Generated", attempt + "_", lines / BLOCK_LINES);
+  }
+}
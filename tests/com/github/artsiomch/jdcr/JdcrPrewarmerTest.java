@@ -0,0 +1,34 @@
+package com.github.artsiomch.jdcr;
+
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.javadoc.PsiDocComment;
+import com.intellij.psi.util.PsiTreeUtil;
+import com.intellij.testFramework.fixtures.LightCodeInsightFixtureTestCase;
+
+public class JdcrPrewarmerTest extends LightCodeInsightFixtureTestCase {
+
+  public void testPrewarmCachesAllComments() {
+    JdcrDocCommentModelCache cache = JdcrDocCommentModelCache.getInstance();
+    cache.clear();
+    PsiFile file =
+        myFixture.configureByText(
+            "Prewarmed.java",
+            "/** Class <b>doc</b>. */\n"
+                + "public class Prewarmed {\n"
+                + "  /** Field {@code doc}. */\n"
+                + "  int field;\n"
+                + "  /**\n"
+                + "   * Method <i>multiline\n"
+                + "   * doc</i>.\n"
+                + "   */\n"
+                + "  void method() {}\n"
+                + "}\n");
+
+    assertEquals(3, JdcrPrewarmer.prewarm(file));
+
+    int catalogFingerprint = JdcrTagCatalog.getInstance().getCompiled().getFingerprint();
+    for (PsiDocComment comment : PsiTreeUtil.findChildrenOfType(file, PsiDocComment.class)) {
+      assertTrue(comment.getText(), cache.contains(comment.getText(), catalogFingerprint));
+    }
+  }
+}
@@ -0,0 +1,50 @@
+package com.github.artsiomch.jdcr;
+
+import com.github.artsiomch.jdcr.utils.Tag;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.javadoc.PsiDocComment;
+import com.intellij.psi.util.PsiTreeUtil;
+import com.intellij.testFramework.fixtures.LightCodeInsightFixtureTestCase;
+import java.util.List;
+
+public class JdcrTagCatalogTest extends LightCodeInsightFixtureTestCase {
+
+  public void testBuiltInTags() {
+    assertTrue(JdcrTagCatalog.isBuiltIn(new Tag("<B>")));
+    assertTrue(JdcrTagCatalog.isBuiltIn(new Tag("<b class=")));
+    assertTrue(JdcrTagCatalog.isBuiltIn(new Tag("<a href=")));
+    assertTrue(JdcrTagCatalog.isBuiltIn(new Tag("<a>")));
+    assertFalse(JdcrTagCatalog.isBuiltIn(new Tag("<a class=")));
+    assertFalse(JdcrTagCatalog.isBuiltIn(new Tag("<strong>")));
+  }
+
+  public void testIndexedCatalogIsUsedForDefaultTagsOnly() {
+    JdcrTagCatalog catalog = JdcrTagCatalog.getInstance();
+    List<JdcrTagCatalog.CustomTag> defaultTags = catalog.getCustomTags();
+    assertTrue(catalog.getCompiled().isDefault());
+    try {
+      List<JdcrTagCatalog.CustomTag> customTags = catalog.getCustomTags();
+      customTags.add(new JdcrTagCatalog.CustomTag("<span class=", JdcrTagCatalog.Style.CODE));
+      catalog.setCustomTags(customTags);
+      assertFalse(catalog.getCompiled().isDefault());
+    } finally {
+      catalog.setCustomTags(defaultTags);
+    }
+    assertSame(JdcrTagCatalog.Compiled.DEFAULT, catalog.getCompiled());
+  }
+
+  public void testCachedModelsOfAnotherCatalogAreNotFound() {
+    PsiFile file =
+        myFixture.configureByText(
+            "Cached.java", "/** Class <b>doc</b>. */\npublic class Cached {}\n");
+    PsiDocComment comment = PsiTreeUtil.findChildOfType(file, PsiDocComment.class);
+    JdcrDocCommentModelCache cache = JdcrDocCommentModelCache.getInstance();
+    cache.clear();
+    int catalogFingerprint = JdcrTagCatalog.getInstance().getCompiled().getFingerprint();
+
+    cache.put(comment.getText(), catalogFingerprint + 1, JdcrDocCommentAnalyzer.analyse(comment));
+
+    assertFalse(cache.contains(comment.getText(), catalogFingerprint));
+    assertTrue(cache.contains(comment.getText(), catalogFingerprint + 1));
+  }
+}
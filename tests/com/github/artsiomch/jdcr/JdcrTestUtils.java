@@ -0,0 +1,69 @@
+package com.github.artsiomch.jdcr;
+
+import com.intellij.codeInsight.daemon.impl.AnnotationHolderImpl;
+import com.intellij.lang.annotation.AnnotationSession;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiRecursiveElementWalkingVisitor;
+
+/** Generated files and annotating shared by the tests of big and many files. */
+final class JdcrTestUtils {
+
+  /** Lines of one generated method with its JavaDoc. */
+  static final int METHOD_LINES = 16;
+
+  private JdcrTestUtils() {}
+
+  /**
+   * @param idPrefix prefix of the ids making comments unique: files generated with the same prefix
+   *     share their comments
+   * @return class {@code className} of {@code methods} methods with mixed JavaDoc markup
+   */
+  static String generate(String className, String idPrefix, int methods) {
+    StringBuilder text = new StringBuilder("public class " + className + " {\n");
+    for (int i = 0; i < methods; i++) {
+      String id = idPrefix + i;
+      text.append("  /**\n")
+          .append("   * Returns <b>value</b> ")
+          .append(id)
+          .append(" of the <i>list</i> &lt;T&gt; with {@code Map<K, V>} and\n")
+          .append("   * {@link java.util.List#get(int) element} or <a\n")
+          .append("   * href=\"https://example.com/")
+          .append(id)
+          .append("\">a link</a>, <code>code</code> &amp; &#64;.\n")
+          .append("   * <pre>\n")
+          .append("   * int x = ")
+          .append(i)
+          .append(";\n")
+          .append("   * </pre>\n")
+          .append("   * Multiline <b>bold\n")
+          .append("   * text</b> and {@literal <literal>}.\n")
+          .append("   *\n")
+          .append("   * @param p parameter <tt>p</tt>\n")
+          .append("   * @return {@code value}\n")
+          .append("   */\n")
+          .append("  public int method")
+          .append(id)
+          .append("(int p) {\n")
+          .append("    return p + ")
+          .append(i)
+          .append(";\n")
+          .append("  }\n");
+    }
+    return text.append("}\n").toString();
+  }
+
+  /** Same as highlighting pass does: annotator is called for each element of the file. */
+  static AnnotationHolderImpl annotate(JdcrAnnotator annotator, PsiFile file) {
+    AnnotationHolderImpl holder = new AnnotationHolderImpl(new AnnotationSession(file));
+    file.accept(
+        new PsiRecursiveElementWalkingVisitor() {
+          @Override
+          public void visitElement(PsiElement element) {
+            annotator.annotate(element, holder);
+            super.visitElement(element);
+          }
+        });
+    return holder;
+  }
+}
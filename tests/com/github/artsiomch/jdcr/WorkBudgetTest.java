@@ -0,0 +1,116 @@
+package com.github.artsiomch.jdcr;
+
+import com.github.artsiomch.jdcr.utils.FoldStateIndex;
+import com.intellij.codeInsight.folding.CodeFoldingManager;
+import com.intellij.openapi.editor.Editor;
+import com.intellij.openapi.editor.FoldRegion;
+import com.intellij.openapi.util.TextRange;
+import com.intellij.openapi.util.registry.Registry;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.javadoc.PsiDocComment;
+import com.intellij.psi.util.PsiTreeUtil;
+import com.intellij.testFramework.fixtures.LightCodeInsightFixtureTestCase;
+import com.intellij.util.ui.UIUtil;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+public class WorkBudgetTest extends LightCodeInsightFixtureTestCase {
+
+  private static final long COMPLETION_TIMEOUT_MS = 10_000;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    // every pass runs over budget from the first comment
+    Registry.get(WorkBudget.CHARS_PER_PASS_KEY).setValue(0);
+    Registry.get(WorkBudget.QUICK_CHARS_PER_PASS_KEY).setValue(0);
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    try {
+      Registry.get(WorkBudget.CHARS_PER_PASS_KEY).resetToDefault();
+      Registry.get(WorkBudget.QUICK_CHARS_PER_PASS_KEY).resetToDefault();
+    } finally {
+      super.tearDown();
+    }
+  }
+
+  public void testFileOverBudgetGetsFullModelsInFoldState() throws Exception {
+    StringBuilder text = new StringBuilder("public class OverBudget {\n");
+    for (int i = 0; i < 4; i++) {
+      text.append("  /**\n")
+          .append("   * Method <b>")
+          .append(i)
+          .append("</b> with <i>multiline\n")
+          .append("   * italic</i> and {@code code}.\n")
+          .append("   */\n")
+          .append("  void method")
+          .append(i)
+          .append("() {}\n");
+    }
+    text.append("}\n");
+    PsiFile file = myFixture.configureByText("OverBudget.java", text.toString());
+    JdcrDocCommentModelCache cache = JdcrDocCommentModelCache.getInstance();
+    cache.clear();
+    Editor editor = myFixture.getEditor();
+
+    List<PsiDocComment> comments =
+        new ArrayList<>(PsiTreeUtil.findChildrenOfType(file, PsiDocComment.class));
+    int fullFolds = 0;
+    for (PsiDocComment comment : comments) {
+      fullFolds += JdcrDocCommentAnalyzer.analyse(comment).getFoldRanges().size();
+    }
+
+    CodeFoldingManager foldingManager = CodeFoldingManager.getInstance(getProject());
+    foldingManager.buildInitialFoldings(editor);
+    // the user reads the first comment
+    TextRange firstComment = comments.get(0).getTextRange();
+    editor
+        .getFoldingModel()
+        .runBatchFoldingOperation(
+            () -> {
+              for (FoldRegion fold : getCommentFolds(editor)) {
+                if (firstComment.contains(fold.getStartOffset())) fold.setExpanded(true);
+              }
+            });
+    foldingManager.updateFoldRegions(editor);
+    assertTrue(getCommentFolds(editor).size() < fullFolds);
+
+    // rest of the file is analysed in background, then folded
+    long deadline = System.currentTimeMillis() + COMPLETION_TIMEOUT_MS;
+    while (getCommentFolds(editor).size() < fullFolds) {
+      assertTrue("Completion timed out", System.currentTimeMillis() < deadline);
+      UIUtil.dispatchAllInvocationEvents();
+      Thread.sleep(10);
+    }
+    assertTrue(isCached(cache, comments));
+
+    List<FoldRegion> folds = getCommentFolds(editor);
+    assertEquals(fullFolds, folds.size());
+    for (FoldRegion fold : folds) {
+      assertEquals(
+          fold.toString(), firstComment.contains(fold.getStartOffset()), fold.isExpanded());
+    }
+  }
+
+  private static boolean isCached(
+      JdcrDocCommentModelCache cache, Collection<PsiDocComment> comments) {
+    int catalogFingerprint = JdcrTagCatalog.getInstance().getCompiled().getFingerprint();
+    for (PsiDocComment comment : comments) {
+      if (!cache.contains(comment.getNode().getChars(), catalogFingerprint)) return false;
+    }
+    return true;
+  }
+
+  private static List<FoldRegion> getCommentFolds(Editor editor) {
+    List<FoldRegion> result = new ArrayList<>();
+    for (FoldRegion region : editor.getFoldingModel().getAllFoldRegions()) {
+      if (String.valueOf(region.getGroup()).startsWith(FoldStateIndex.GROUP_PREFIX)) {
+        result.add(region);
+      }
+    }
+    return result;
+  }
+}
@@ -0,0 +1,50 @@
+package com.github.artsiomch.jdcr.utils;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+public class HtmlEntitiesTest {
+
+  private static String unescape(String text) {
+    return HtmlEntities.unescape(text, 0, text.length());
+  }
+
+  @Test
+  public void namedTest() {
+    assertEquals("<", unescape("&lt;"));
+    assertEquals(" ", unescape("&nbsp;"));
+    assertEquals("½", unescape("&frac12;"));
+    assertEquals("∳", unescape("&CounterClockwiseContourIntegral;"));
+    assertEquals("≂̸", unescape("&NotEqualTilde;"));
+    assertSame(unescape("&gt;"), unescape("&gt;"));
+    assertEquals("&notAnEntity;", unescape("&notAnEntity;"));
+    assertEquals("&LT1;", unescape("&LT1;"));
+    assertEquals("<", HtmlEntities.unescape("text &lt; text", 5, 9));
+  }
+
+  @Test
+  public void numericTest() {
+    assertEquals("<", unescape("&#60;"));
+    assertEquals("<", unescape("&#x3c;"));
+    assertEquals("<", unescape("&#X3C;"));
+    assertEquals("𝔄", unescape("&#x1d504;"));
+    assertEquals("�", unescape("&#0;"));
+    assertEquals("�", unescape("&#x0;"));
+    assertEquals("�", unescape("&#xd800;"));
+    assertEquals("�", unescape("&#99999999999;"));
+    assertEquals("<g;", unescape("&#x3cg;"));
+    assertEquals("&#xyz;", unescape("&#xyz;"));
+  }
+
+  @Test
+  public void windows1252Test() {
+    assertEquals("€", unescape("&#128;"));
+    assertEquals("™", unescape("&#x99;"));
+    assertEquals("Ÿ", unescape("&#159;"));
+    // not defined in Windows-1252, kept
+    assertEquals("\u0081", unescape("&#x81;"));
+    // outside of 0x80..0x9F
+    assertEquals("\u007f", unescape("&#127;"));
+    assertEquals("\u00a0", unescape("&#160;"));
+  }
+}
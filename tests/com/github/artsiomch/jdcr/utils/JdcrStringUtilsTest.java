@@ -34,7 +34,7 @@ public class JdcrStringUtilsTest {
     htmlTags = JdcrStringUtils.getHtmlTags(text);
     assertTrue(text, htmlTags.isEmpty());
 
-    // fixme: text = "Html comment <!-- <not_a_tag> -->";
+    text = "Html comment <!-- <not_a_tag> -->";
     htmlTags = JdcrStringUtils.getHtmlTags(text);
     assertTrue(text, htmlTags.isEmpty());
   }
@@ -99,6 +99,36 @@ public class JdcrStringUtilsTest {
     assertEquals(text, 8, htmlEscapedChars.get(1).getEndOffset());
   }
 
+  @Test
+  public void getHtmlMarkupTest() {
+    HtmlMarkup htmlMarkup;
+    String text;
+
+    text = "no markup test";
+    htmlMarkup = JdcrStringUtils.getHtmlMarkup(text);
+    assertTrue(text, htmlMarkup.isEmpty());
+
+    text = "tag> end, <b>tag</b>, &lt;esc&gt; <!-- <not_a_tag> &amp; --> and <tag start";
+    htmlMarkup = JdcrStringUtils.getHtmlMarkup(text);
+    assertEquals(text, new TextRange(0, 4), htmlMarkup.getIncompleteTagEnd());
+    assertEquals(text, 2, htmlMarkup.getTags().size());
+    assertEquals(text, new TextRange(10, 13), htmlMarkup.getTags().get(0));
+    assertEquals(text, new TextRange(16, 20), htmlMarkup.getTags().get(1));
+    assertEquals(text, 2, htmlMarkup.getEscapedChars().size());
+    assertEquals(text, new TextRange(22, 26), htmlMarkup.getEscapedChars().get(0));
+    assertEquals(text, new TextRange(29, 33), htmlMarkup.getEscapedChars().get(1));
+    assertEquals(text, 1, htmlMarkup.getComments().size());
+    assertEquals(text, new TextRange(34, 60), htmlMarkup.getComments().get(0));
+    assertEquals(text, new TextRange(65, 75), htmlMarkup.getIncompleteTagStart());
+
+    text = "not a tag --> <!-- unclosed comment <b>";
+    htmlMarkup = JdcrStringUtils.getHtmlMarkup(text);
+    assertNull(text, htmlMarkup.getIncompleteTagEnd());
+    assertTrue(text, htmlMarkup.getComments().isEmpty());
+    assertEquals(text, 1, htmlMarkup.getTags().size());
+    assertEquals(text, new TextRange(36, 39), htmlMarkup.getTags().get(0));
+  }
+
   @Test
   public void getValuesOfTagTest() {
     List<TextRange> htmlTagValues;
@@ -190,6 +220,12 @@ public class JdcrStringUtilsTest {
     assertEquals(text, 95, htmlTagValues.get(2).getStartOffset());
     assertEquals(text, 100, htmlTagValues.get(2).getEndOffset());
 
+    text = "<TAG1 >upper case and spaces</ tag1> test";
+    htmlTagValues = JdcrStringUtils.getValuesOfTag(text, tag1);
+    assertEquals(text, 1, htmlTagValues.size());
+    assertEquals(text, 7, htmlTagValues.get(0).getStartOffset());
+    assertEquals(text, 28, htmlTagValues.get(0).getEndOffset());
+
     Tag htmlTagRef = new Tag("<a", "</a>");
     text = "<a href=\"www\">HtmlLink</a> tags test";
     htmlTagValues = JdcrStringUtils.getValuesOfTag(text, htmlTagRef);
@@ -0,0 +1,42 @@
+package com.github.artsiomch.jdcr.utils;
+
+import com.intellij.openapi.util.TextRange;
+import java.util.Arrays;
+import org.junit.*;
+import static org.junit.Assert.*;
+
+public class RangeBufferTest {
+
+  @Test
+  public void addShiftReverseTest() {
+    RangeBuffer buffer = new RangeBuffer(1);
+    for (int i = 0; i < 10; i++) {
+      buffer.add(i * 10, i * 10 + 5);
+    }
+    assertEquals(10, buffer.size());
+    assertEquals(90, buffer.getStart(9));
+    assertEquals(95, buffer.getLastEnd());
+
+    buffer.shift(3).reverse();
+    assertEquals(93, buffer.getFirstStart());
+    assertEquals(98, buffer.getEnd(0));
+    assertEquals(new TextRange(3, 8), buffer.getTextRange(9));
+
+    RangeBuffer copy = new RangeBuffer().addAll(buffer, -3);
+    assertEquals(new TextRange(90, 95), copy.getTextRange(0));
+    copy.truncate(2);
+    assertEquals(Arrays.asList(new TextRange(90, 95), new TextRange(80, 85)), copy.toTextRanges());
+  }
+
+  @Test
+  public void ofListTest() {
+    RangeBuffer buffer = RangeBuffer.of(Arrays.asList(new TextRange(1, 2), new TextRange(4, 8)));
+    assertEquals("[(1,2), (4,8)]", buffer.toString());
+    assertTrue(RangeBuffer.EMPTY.toTextRanges().isEmpty());
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void emptyIsNotModifiableTest() {
+    RangeBuffer.EMPTY.add(0, 1);
+  }
+}
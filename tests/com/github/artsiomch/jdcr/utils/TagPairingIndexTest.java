@@ -0,0 +1,54 @@
+package com.github.artsiomch.jdcr.utils;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+public class TagPairingIndexTest {
+
+  private static final Tag BOLD_TAG = new Tag("<b>", "</b>");
+  private static final Tag ITALIC_TAG = new Tag("<i>", "</i>");
+
+  private static final TagValueResolver RESOLVER = new TagValueResolver(BOLD_TAG, ITALIC_TAG);
+
+  private static TagPairingIndex.Builder add(
+      TagPairingIndex.Builder builder, String text, int shift) {
+    return builder.addTags(text, JdcrStringUtils.getHtmlTags(text), shift);
+  }
+
+  @Test
+  public void pairingThroughSeveralTextsTest() {
+    TagPairingIndex.Builder builder = new TagPairingIndex.Builder(RESOLVER);
+    // "</i> lonely <b>multi" + "line</b> <b><b>nested</b></b> <i>not closed"
+    add(builder, "</i> lonely <b>multi", 0);
+    add(builder, "line</b> <b><b>nested</b></b> <i>not closed", 100);
+    TagPairingIndex index = builder.build();
+
+    assertEquals(3, index.size());
+    assertSame(BOLD_TAG, index.getValueTag(0));
+    assertEquals(15, index.getValueStart(0));
+    assertEquals(104, index.getValueEnd(0));
+    assertEquals(112, index.getValueStart(1));
+    assertEquals(125, index.getValueEnd(1));
+    assertEquals(115, index.getValueStart(2));
+    assertEquals(121, index.getValueEnd(2));
+
+    assertEquals(0, index.firstValueStartedAfter(0));
+    assertEquals(1, index.firstValueStartedAfter(100));
+    assertEquals(2, index.firstValueStartedAfter(112));
+    assertEquals(3, index.firstValueStartedAfter(115));
+  }
+
+  @Test
+  public void multilineTagTest() {
+    TagPairingIndex.Builder builder = new TagPairingIndex.Builder(RESOLVER);
+    builder.addTag("<i >", 10, 20);
+    add(builder, "text</i>", 20);
+    builder.addTag("</ i>", 30, 40);
+    TagPairingIndex index = builder.build();
+
+    assertEquals(1, index.size());
+    assertSame(ITALIC_TAG, index.getValueTag(0));
+    assertEquals(20, index.getValueStart(0));
+    assertEquals(24, index.getValueEnd(0));
+  }
+}
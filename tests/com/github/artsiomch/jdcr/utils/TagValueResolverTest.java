@@ -0,0 +1,68 @@
+package com.github.artsiomch.jdcr.utils;
+
+import com.github.artsiomch.jdcr.utils.TagValueResolver.TagValue;
+import com.intellij.openapi.util.TextRange;
+import java.util.List;
+import org.junit.*;
+import static org.junit.Assert.*;
+
+public class TagValueResolverTest {
+
+  private static final Tag BOLD_TAG = new Tag("<b>", "</b>");
+  private static final Tag ITALIC_TAG = new Tag("<i>", "</i>");
+  private static final Tag A_HREF_TAG = new Tag("<a href=", "</a>");
+  private static final Tag A_NAME_TAG = new Tag("<a name=", "</a>");
+
+  private static final TagValueResolver RESOLVER =
+      new TagValueResolver(BOLD_TAG, ITALIC_TAG, A_HREF_TAG, A_NAME_TAG);
+
+  private static List<TagValue> resolve(String text) {
+    return RESOLVER.resolve(text, JdcrStringUtils.getHtmlTags(text));
+  }
+
+  @Test
+  public void resolveTest() {
+    List<TagValue> tagValues;
+    String text;
+
+    text = "no <p>styled</p> tags test";
+    tagValues = resolve(text);
+    assertTrue(text, tagValues.isEmpty());
+
+    text = "<b><i>nested</i></b> tags test";
+    tagValues = resolve(text);
+    assertEquals(text, 2, tagValues.size());
+    assertSame(text, ITALIC_TAG, tagValues.get(0).getTag());
+    assertEquals(text, new TextRange(6, 12), tagValues.get(0).getRange());
+    assertSame(text, BOLD_TAG, tagValues.get(1).getTag());
+    assertEquals(text, new TextRange(3, 16), tagValues.get(1).getRange());
+
+    text = "<a href=\"www\">link</a> and <a name=\"n\">name</a> test";
+    tagValues = resolve(text);
+    // `</a>` closes both tags, so lonely close (possible end of multiline tag) is found as well
+    assertEquals(text, 4, tagValues.size());
+    assertSame(text, A_HREF_TAG, tagValues.get(0).getTag());
+    assertEquals(text, new TextRange(14, 18), tagValues.get(0).getRange());
+    assertSame(text, A_NAME_TAG, tagValues.get(1).getTag());
+    assertEquals(text, new TextRange(0, 18), tagValues.get(1).getRange());
+    assertSame(text, A_HREF_TAG, tagValues.get(2).getTag());
+    assertEquals(text, new TextRange(0, 43), tagValues.get(2).getRange());
+    assertSame(text, A_NAME_TAG, tagValues.get(3).getTag());
+    assertEquals(text, new TextRange(39, 43), tagValues.get(3).getRange());
+
+    text = "multiline</b> end and <b class=\"x\">start";
+    tagValues = resolve(text);
+    assertEquals(text, 2, tagValues.size());
+    assertEquals(text, new TextRange(0, 9), tagValues.get(0).getRange());
+    assertEquals(text, new TextRange(35, 40), tagValues.get(1).getRange());
+  }
+
+  @Test
+  public void openedClosedTagsTest() {
+    assertTrue(RESOLVER.getOpenedTags("<a href=\"www\">").contains(A_HREF_TAG));
+    assertFalse(RESOLVER.getOpenedTags("<a href=\"www\">").contains(A_NAME_TAG));
+    assertTrue(RESOLVER.getOpenedTags("<b />").isEmpty());
+    assertEquals(2, RESOLVER.getClosedTags("</a >").size());
+    assertTrue(RESOLVER.getClosedTags("<a href=\"www\">").isEmpty());
+  }
+}